@@ -0,0 +1,60 @@
+package inaf;
+
+import java.util.Arrays;
+import java.util.List;
+
+class Chunk {
+	static class ClassInfo {
+		final String name;
+		final int supers;
+		final Chunk init;
+		final Chunk[] methods;
+
+		ClassInfo(String name, int supers, Chunk init, Chunk[] methods) {
+			this.name = name;
+			this.supers = supers;
+			this.init = init;
+			this.methods = methods;
+		}
+	}
+
+	final Token name;
+	final List<Token> parametters;
+	final List<TokenType> types;
+	final int frameSize;
+	final boolean init;
+	//set for method chunks so the vm shares the Jit tier with the evaluator
+	Stmt.Method declaration;
+
+	int[] code = new int[64];
+	//the source position of every instruction, only read to report runtime errors
+	Position[] positions = new Position[64];
+	Object[] constants;
+	InlineCache[] caches;
+	int length;
+
+	Chunk(Token name, List<Token> parametters, List<TokenType> types, int frameSize, boolean init) {
+		this.name = name;
+		this.parametters = parametters;
+		this.types = types;
+		this.frameSize = frameSize;
+		this.init = init;
+	}
+
+	int write(int value, Position position) {
+		if(length == code.length) {
+			code = Arrays.copyOf(code, length * 2);
+			positions = Arrays.copyOf(positions, length * 2);
+		}
+
+		code[length] = value;
+		positions[length] = position;
+
+		return length++;
+	}
+
+	void trim() {
+		code = Arrays.copyOf(code, length);
+		positions = Arrays.copyOf(positions, length);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,357 @@
+package inaf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//just enough of the class file format for the Jit, version 49 is verified by type inference so no stack map frames are written
+class ClassFile {
+	static final int PUBLIC = 0x0001;
+	static final int STATIC = 0x0008;
+	static final int FINAL = 0x0010;
+	private static final int SUPER = 0x0020;
+	private static final int VERSION = 49;
+
+	static final int ACONST_NULL = 0x01;
+	static final int DCONST_0 = 0x0e;
+	static final int DCONST_1 = 0x0f;
+	static final int BIPUSH = 0x10;
+	static final int SIPUSH = 0x11;
+	static final int LDC2_W = 0x14;
+	static final int DLOAD = 0x18;
+	static final int ALOAD_0 = 0x2a;
+	static final int ALOAD_1 = 0x2b;
+	static final int DALOAD = 0x31;
+	static final int DSTORE = 0x39;
+	static final int DASTORE = 0x52;
+	static final int AASTORE = 0x53;
+	static final int POP2 = 0x58;
+	static final int DUP2 = 0x5c;
+	static final int DADD = 0x63;
+	static final int DSUB = 0x67;
+	static final int DMUL = 0x6b;
+	static final int DDIV = 0x6f;
+	static final int DNEG = 0x77;
+	static final int DCMPL = 0x97;
+	static final int DCMPG = 0x98;
+	static final int IFEQ = 0x99;
+	static final int IFNE = 0x9a;
+	static final int IFLT = 0x9b;
+	static final int IFGE = 0x9c;
+	static final int IFGT = 0x9d;
+	static final int IFLE = 0x9e;
+	static final int GOTO = 0xa7;
+	static final int DRETURN = 0xaf;
+	static final int RETURN = 0xb1;
+	static final int GETSTATIC = 0xb2;
+	static final int GETFIELD = 0xb4;
+	static final int INVOKESPECIAL = 0xb7;
+	static final int INVOKESTATIC = 0xb8;
+	static final int ATHROW = 0xbf;
+	private static final int WIDE = 0xc4;
+
+	private static final int UTF8 = 1;
+	private static final int DOUBLE = 6;
+	private static final int CLASS = 7;
+	private static final int FIELDREF = 9;
+	private static final int METHODREF = 10;
+	private static final int NAME_AND_TYPE = 12;
+
+	//thrown when a method does not fit the format, the caller keeps interpreting it
+	static class TooLarge extends RuntimeException {
+		TooLarge() {
+			super(null, null, false, false);
+		}
+	}
+
+	static class Label {
+		private int position = -1;
+		private final List<Integer> jumps = new ArrayList<>();
+	}
+
+	class Code {
+		private final int access;
+		private final int name;
+		private final int descriptor;
+		private final int locals;
+		private byte[] bytes = new byte[64];
+		private int length;
+		private int stack;
+		private int maxStack;
+
+		private Code(int access, String name, String descriptor, int locals) {
+			this.access = access;
+			this.name = utf8(name);
+			this.descriptor = utf8(descriptor);
+			this.locals = locals;
+		}
+
+		//every emit states how the instruction moves the operand stack, doubles count twice
+		void op(int opcode, int effect) {
+			u1(opcode);
+			adjust(effect);
+		}
+
+		void local(int opcode, int index, int effect) {
+			if(index > 255) {
+				u1(WIDE);
+				u1(opcode);
+				u2(index);
+			} else {
+				u1(opcode);
+				u1(index);
+			}
+
+			adjust(effect);
+		}
+
+		void constant(double value) {
+			if(Double.doubleToRawLongBits(value) == 0) {
+				op(DCONST_0, 2);
+			} else if(value == 1) {
+				op(DCONST_1, 2);
+			} else {
+				u1(LDC2_W);
+				u2(doubleConstant(value));
+				adjust(2);
+			}
+		}
+
+		void integer(int value) {
+			if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				u1(BIPUSH);
+				u1(value);
+			} else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				u1(SIPUSH);
+				u2(value);
+			} else {
+				throw new TooLarge();
+			}
+
+			adjust(1);
+		}
+
+		void member(int opcode, int reference, int effect) {
+			u1(opcode);
+			u2(reference);
+			adjust(effect);
+		}
+
+		void jump(int opcode, Label label, int effect) {
+			int at = length;
+			u1(opcode);
+			adjust(effect);
+
+			if(label.position >= 0) {
+				offset(label.position - at);
+			} else {
+				label.jumps.add(at);
+				u2(0);
+			}
+		}
+
+		void bind(Label label) {
+			label.position = length;
+
+			for(int at : label.jumps) {
+				int delta = length - at;
+
+				check(delta);
+				bytes[at + 1] = (byte) (delta >> 8);
+				bytes[at + 2] = (byte) delta;
+			}
+
+			label.jumps.clear();
+		}
+
+		void finish() {
+			if(length > 65535) {
+				throw new TooLarge();
+			}
+
+			methods.add(this);
+		}
+
+		private void offset(int delta) {
+			check(delta);
+			u2(delta);
+		}
+
+		private void check(int delta) {
+			if(delta < Short.MIN_VALUE || delta > Short.MAX_VALUE) {
+				throw new TooLarge();
+			}
+		}
+
+		private void adjust(int effect) {
+			stack += effect;
+			maxStack = Math.max(maxStack, stack);
+		}
+
+		private void u1(int value) {
+			if(length == bytes.length) {
+				bytes = Arrays.copyOf(bytes, length * 2);
+			}
+
+			bytes[length++] = (byte) value;
+		}
+
+		private void u2(int value) {
+			u1(value >> 8);
+			u1(value);
+		}
+	}
+
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+	private final Map<String, Integer> entries = new HashMap<>();
+	private final List<Code> methods = new ArrayList<>();
+	private int poolCount = 1;
+	private final int self;
+	private final int parent;
+	private final int[] interfaces;
+
+	ClassFile(String name, String parent, String... interfaces) {
+		this.self = classConstant(name);
+		this.parent = classConstant(parent);
+		this.interfaces = new int[interfaces.length];
+
+		for(int i = 0; i < interfaces.length; i++) {
+			this.interfaces[i] = classConstant(interfaces[i]);
+		}
+	}
+
+	Code method(int access, String name, String descriptor, int locals) {
+		if(locals > 65535) {
+			throw new TooLarge();
+		}
+
+		return new Code(access, name, descriptor, locals);
+	}
+
+	int methodConstant(String owner, String name, String descriptor) {
+		return reference(METHODREF, owner, name, descriptor);
+	}
+
+	int fieldConstant(String owner, String name, String descriptor) {
+		return reference(FIELDREF, owner, name, descriptor);
+	}
+
+	byte[] toBytes() {
+		int code = utf8("Code");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try(DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(0xcafebabe);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			out.writeShort(poolCount);
+			poolBytes.writeTo(out);
+			out.writeShort(PUBLIC | FINAL | SUPER);
+			out.writeShort(self);
+			out.writeShort(parent);
+			out.writeShort(interfaces.length);
+
+			for(int index : interfaces) {
+				out.writeShort(index);
+			}
+
+			out.writeShort(0);
+			out.writeShort(methods.size());
+
+			for(Code method : methods) {
+				out.writeShort(method.access);
+				out.writeShort(method.name);
+				out.writeShort(method.descriptor);
+				out.writeShort(1);
+				out.writeShort(code);
+				out.writeInt(12 + method.length);
+				out.writeShort(method.maxStack);
+				out.writeShort(method.locals);
+				out.writeInt(method.length);
+				out.write(method.bytes, 0, method.length);
+				out.writeShort(0);
+				out.writeShort(0);
+			}
+
+			out.writeShort(0);
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private int utf8(String value) {
+		return entry("U" + value, 1, out -> {
+			out.writeByte(UTF8);
+			out.writeUTF(value);
+		});
+	}
+
+	int classConstant(String name) {
+		int index = utf8(name);
+
+		return entry("C" + name, 1, out -> {
+			out.writeByte(CLASS);
+			out.writeShort(index);
+		});
+	}
+
+	private int doubleConstant(double value) {
+		//a double takes two pool entries
+		return entry("D" + Double.doubleToRawLongBits(value), 2, out -> {
+			out.writeByte(DOUBLE);
+			out.writeDouble(value);
+		});
+	}
+
+	private int reference(int tag, String owner, String name, String descriptor) {
+		int owning = classConstant(owner);
+		int names = utf8(name);
+		int types = utf8(descriptor);
+		int pair = entry("N" + name + " " + descriptor, 1, out -> {
+			out.writeByte(NAME_AND_TYPE);
+			out.writeShort(names);
+			out.writeShort(types);
+		});
+
+		return entry(tag + owner + "." + name + descriptor, 1, out -> {
+			out.writeByte(tag);
+			out.writeShort(owning);
+			out.writeShort(pair);
+		});
+	}
+
+	private interface Writer {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	private int entry(String key, int size, Writer writer) {
+		Integer index = entries.get(key);
+
+		if(index != null) {
+			return index;
+		}
+
+		try {
+			writer.write(pool);
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		if(poolCount + size > 65535) {
+			throw new TooLarge();
+		}
+
+		entries.put(key, poolCount);
+		poolCount += size;
+
+		return poolCount - size;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,875 @@
+package inaf;
+
+import static inaf.OpCode.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class Compiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+	private static class Loop {
+		final Loop enclosing;
+		final List<Integer> breaks = new ArrayList<>();
+		final List<Integer> continues = new ArrayList<>();
+
+		Loop(Loop enclosing) {
+			this.enclosing = enclosing;
+		}
+	}
+
+	private final Chunk chunk;
+	private final List<Object> constants = new ArrayList<>();
+	private final Map<Object, Integer> constantIdx = new HashMap<>();
+	private Loop loop;
+	private int caches;
+	//the invariant being computed in front of its loop, every other use loads the slot
+	private Expr hoisting;
+
+	private Compiler(Chunk chunk) {
+		this.chunk = chunk;
+	}
+
+	static Chunk compile(List<Stmt> statements, int frameSize) {
+		Compiler compiler = new Compiler(new Chunk(null, new ArrayList<>(), new ArrayList<>(), frameSize, false));
+
+		//top level methods can be called before the line that declares them
+		for(Stmt statement : statements) {
+			if(statement instanceof Stmt.Method) {
+				compiler.compile(statement);
+			}
+		}
+
+		for(Stmt statement : statements) {
+			if(!(statement instanceof Stmt.Method)) {
+				compiler.compile(statement);
+			}
+		}
+
+		compiler.emit(NIL, null);
+		compiler.emit(RETURN, null);
+
+		return compiler.finish();
+	}
+
+	private static Chunk compile(Token name, List<Token> parametters, List<TokenType> types, List<Stmt> body, int frameSize, boolean init, Position end) {
+		Compiler compiler = new Compiler(new Chunk(name, parametters, types, frameSize, init));
+
+		compiler.compile(body);
+		compiler.emit(NIL, end);
+		compiler.emit(RETURN, end);
+
+		return compiler.finish();
+	}
+
+	private Chunk finish() {
+		chunk.constants = constants.toArray();
+		chunk.caches = new InlineCache[caches];
+
+		for(int i = 0; i < caches; i++) {
+			chunk.caches[i] = new InlineCache();
+		}
+
+		chunk.trim();
+
+		return chunk;
+	}
+
+	private void compile(List<Stmt> statements) {
+		for(Stmt statement : statements) {
+			compile(statement);
+		}
+	}
+
+	private void compile(Stmt statement) {
+		statement.accept(this);
+	}
+
+	private void compile(Expr expression) {
+		expression.accept(this);
+	}
+
+	private void emit(int op, Position position) {
+		chunk.write(op, position);
+	}
+
+	private int emit(int op, int operand, Position position) {
+		chunk.write(op, position);
+
+		return chunk.write(operand, position);
+	}
+
+	private void emit(int op, int first, int second, Position position) {
+		chunk.write(op, position);
+		chunk.write(first, position);
+		chunk.write(second, position);
+	}
+
+	private void patch(int operand) {
+		chunk.code[operand] = chunk.length;
+	}
+
+	private int constant(Object value) {
+		Integer idx = constantIdx.get(value);
+
+		if(idx == null) {
+			idx = constants.size();
+			constants.add(value);
+			constantIdx.put(value, idx);
+		}
+
+		return idx;
+	}
+
+	//constants that are compared by identity, such as chunks and AST nodes
+	private int reference(Object value) {
+		constants.add(value);
+
+		return constants.size() - 1;
+	}
+
+	private void load(int depth, int slot, TokenType type, Token name) {
+		if(depth < 0) {
+			emit(LOAD_GLOBAL, constant(name.literal), name.start);
+		} else if(depth == 0) {
+			emit(type == TokenType.NUM ? LOAD_NUM : LOAD, slot, name.start);
+		} else {
+			emit(type == TokenType.NUM ? LOAD_OUTER_NUM : LOAD_OUTER, depth, slot, name.start);
+		}
+	}
+
+	//leaves the stored value on the stack
+	private void store(int depth, int slot, TokenType type, Token name) {
+		if(type == TokenType.STRING || type == TokenType.CHAR || type == TokenType.BOOLEAN) {
+			emit(CHECK, type.ordinal(), name.start);
+		}
+
+		if(depth < 0) {
+			emit(STORE_GLOBAL, constant(name.literal), name.start);
+		} else if(depth == 0) {
+			emit(type == TokenType.NUM ? STORE_NUM : STORE, slot, name.start);
+		} else {
+			emit(type == TokenType.NUM ? STORE_OUTER_NUM : STORE_OUTER, depth, slot, name.start);
+		}
+	}
+
+	private void declare(int slot, TokenType type, Token name, Expr initializer) {
+		if(initializer != null) {
+			compile(initializer);
+		} else if(type == TokenType.NUM) {
+			emit(CONSTANT, constant(0.0), name.start);
+		} else {
+			emit(NIL, name.start);
+		}
+
+		if(slot >= 0) {
+			store(0, slot, type, name);
+		}
+
+		emit(POP, name.start);
+	}
+
+	private void body(List<Stmt> statements, Loop current) {
+		loop = current;
+		compile(statements);
+		loop = current.enclosing;
+	}
+
+	private void hoist(List<Expr> invariants) {
+		for(Expr invariant : invariants) {
+			hoisting = invariant;
+			compile(invariant);
+			hoisting = null;
+
+			if(invariant instanceof Expr.BinaryOpNode) {
+				emit(STORE_NUM, ((Expr.BinaryOpNode) invariant).hoisted, invariant.start);
+			} else {
+				emit(STORE_NUM, ((Expr.UnaryOpNode) invariant).hoisted, invariant.start);
+			}
+
+			emit(POP, invariant.start);
+		}
+	}
+
+	private void endLoop(Loop current, int continueTarget) {
+		for(int operand : current.continues) {
+			chunk.code[operand] = continueTarget;
+		}
+
+		for(int operand : current.breaks) {
+			patch(operand);
+		}
+	}
+
+	@Override
+	public Void visitNumberNode(Expr.NumberNode expr) {
+		emit(CONSTANT, constant(expr.value), expr.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitStringNode(Expr.StringNode expr) {
+		emit(CONSTANT, constant(expr.token.literal), expr.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitLiteralNode(Expr.LiteralNode expr) {
+		if(Boolean.TRUE.equals(expr.value)) {
+			emit(TRUE, expr.start);
+		} else if(Boolean.FALSE.equals(expr.value)) {
+			emit(FALSE, expr.start);
+		} else if(expr.value == null) {
+			emit(NIL, expr.start);
+		} else {
+			emit(CONSTANT, constant(expr.value), expr.start);
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitListNode(Expr.ListNode expr) {
+		for(Expr element : expr.elementsNode) {
+			compile(element);
+		}
+
+		emit(LIST, expr.elementsNode.size(), expr.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitAssignNode(Expr.AssignNode expr) {
+		assign(expr, expr.postfix);
+
+		return null;
+	}
+
+	private void assign(Expr.AssignNode expr, boolean postfix) {
+		if(postfix) {
+			load(expr.depth, expr.slot, expr.type, expr.token);
+		}
+
+		compile(expr.value);
+		store(expr.depth, expr.slot, expr.type, expr.token);
+
+		if(postfix) {
+			emit(POP, expr.token.start);
+		}
+	}
+
+	@Override
+	public Void visitAccessNode(Expr.AccessNode expr) {
+		load(expr.depth, expr.slot, expr.type, expr.token);
+
+		return null;
+	}
+
+	@Override
+	public Void visitBinaryOpNode(Expr.BinaryOpNode expr) {
+		Position at = expr.operator.start;
+
+		if(expr.hoisted >= 0 && expr != hoisting) {
+			emit(LOAD_NUM, expr.hoisted, expr.start);
+
+			return null;
+		}
+
+		switch(expr.operator.type) {
+			case AND:
+			case OR:
+				//both yield a boolean, like the tree evaluator
+				compile(expr.left);
+
+				if(expr.operator.type == TokenType.AND) {
+					int leftFalse = emit(JUMP_FALSE, 0, at);
+					compile(expr.right);
+					int rightFalse = emit(JUMP_FALSE, 0, at);
+					emit(TRUE, at);
+					int end = emit(JUMP, 0, at);
+					patch(leftFalse);
+					patch(rightFalse);
+					emit(FALSE, at);
+					patch(end);
+				} else {
+					int leftFalse = emit(JUMP_FALSE, 0, at);
+					emit(TRUE, at);
+					int end = emit(JUMP, 0, at);
+					patch(leftFalse);
+					compile(expr.right);
+					int rightFalse = emit(JUMP_FALSE, 0, at);
+					emit(TRUE, at);
+					int rightEnd = emit(JUMP, 0, at);
+					patch(rightFalse);
+					emit(FALSE, at);
+					patch(end);
+					patch(rightEnd);
+				}
+
+				return null;
+			default:
+				break;
+		}
+
+		compile(expr.left);
+		compile(expr.right);
+		operator(expr.operator);
+
+		return null;
+	}
+
+	private void operator(Token operator) {
+		Position at = operator.start;
+
+		switch(operator.type) {
+			case PLUS:
+				emit(ADD, at);
+				break;
+			case MINUS:
+				emit(SUBTRACT, at);
+				break;
+			case MUL:
+				emit(MULTIPLY, at);
+				break;
+			case DIV:
+				emit(DIVIDE, at);
+				break;
+			case MOD:
+				emit(MODULO, at);
+				break;
+			case DEQUAL:
+				emit(EQUAL, at);
+				break;
+			case NOTEQUAL:
+				emit(NOT_EQUAL, at);
+				break;
+			case LESS:
+				emit(OpCode.LESS, at);
+				break;
+			case LTE:
+				emit(LESS_EQUAL, at);
+				break;
+			case GREATER:
+				emit(OpCode.GREATER, at);
+				break;
+			case GTE:
+				emit(GREATER_EQUAL, at);
+				break;
+			case AMPERSAND:
+				emit(OpCode.AMPERSAND, at);
+				break;
+			case EOR:
+				emit(OpCode.EOR, at);
+				break;
+			case TYPE:
+				emit(OpCode.TYPE, at);
+				break;
+			default:
+				InvalidSyntaxError unknown = new InvalidSyntaxError(operator.start, operator.end, "Unknown operator");
+				break;
+		}
+	}
+
+	@Override
+	public Void visitUnaryOpNode(Expr.UnaryOpNode expr) {
+		if(expr.hoisted >= 0 && expr != hoisting) {
+			emit(LOAD_NUM, expr.hoisted, expr.start);
+
+			return null;
+		}
+
+		compile(expr.node);
+
+		if(expr.operator.type == TokenType.MINUS) {
+			emit(NEGATE, expr.operator.start);
+		} else if(expr.operator.type == TokenType.NOT) {
+			emit(OpCode.NOT, expr.operator.start);
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitCallNode(Expr.CallNode expr) {
+		//super(...) runs the init of the first super class on this
+		if(expr.callee instanceof Expr.SuperNode && ((Expr.SuperNode) expr.callee).method == null) {
+			for(Expr argument : expr.arguments) {
+				compile(argument);
+			}
+
+			emit(SUPER_CALL, expr.arguments.size(), expr.callee.start);
+
+			return null;
+		}
+
+		//obj.method(...) looks the method up through a cache and never builds a bound method
+		if(expr.callee instanceof Expr.GetNode) {
+			Expr.GetNode get = (Expr.GetNode) expr.callee;
+			compile(get.object);
+
+			for(Expr argument : expr.arguments) {
+				compile(argument);
+			}
+
+			emit(INVOKE, constant(get.token.literal), expr.arguments.size(), get.token.start);
+			chunk.write(caches++, get.token.start);
+
+			return null;
+		}
+
+		compile(expr.callee);
+
+		for(Expr argument : expr.arguments) {
+			compile(argument);
+		}
+
+		emit(CALL, expr.arguments.size(), expr.rparen.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitGetNode(Expr.GetNode expr) {
+		compile(expr.object);
+		emit(GET, constant(expr.token.literal), caches++, expr.token.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitSetNode(Expr.SetNode expr) {
+		set(expr, expr.postfix);
+
+		return null;
+	}
+
+	private void set(Expr.SetNode expr, boolean postfix) {
+		compile(expr.object);
+
+		if(expr.update != null) {
+			emit(DUP, expr.token.start);
+			emit(GET, constant(expr.token.literal), caches++, expr.token.start);
+
+			//keeps the field before the update under the object for a postfix, SET leaves the updated one above it
+			if(postfix) {
+				emit(DUP_UNDER, expr.token.start);
+			}
+
+			compile(expr.value);
+			operator(expr.update.operator);
+		} else {
+			compile(expr.value);
+		}
+
+		emit(SET, constant(expr.token.literal), caches++, expr.token.start);
+
+		if(postfix) {
+			emit(POP, expr.token.start);
+		}
+	}
+
+	//the value is popped right away, so x++ there needs no copy of the old x
+	private void effect(Expr expr, Position at) {
+		if(expr instanceof Expr.AssignNode) {
+			assign((Expr.AssignNode) expr, false);
+		} else if(expr instanceof Expr.SetNode) {
+			set((Expr.SetNode) expr, false);
+		} else {
+			compile(expr);
+		}
+
+		emit(POP, at);
+	}
+
+	@Override
+	public Void visitThisNode(Expr.ThisNode expr) {
+		emit(THIS, expr.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitSuperNode(Expr.SuperNode expr) {
+		if(expr.method == null) {
+			InvalidSyntaxError superError = new InvalidSyntaxError(expr.start, expr.end, "Expected '(' or '.' after 'super'");
+
+			return null;
+		}
+
+		emit(SUPER, constant(expr.method.literal), expr.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitBlockStmt(Stmt.Block stmt) {
+		compile(stmt.statements);
+
+		return null;
+	}
+
+	@Override
+	public Void visitExpressionStmt(Stmt.Expression stmt) {
+		effect(stmt.expression, stmt.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitVarStmt(Stmt.Var stmt) {
+		declare(stmt.slot, TokenType.VAR, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitConstStmt(Stmt.Const stmt) {
+		declare(stmt.slot, TokenType.CONST, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitStringStmt(Stmt.String stmt) {
+		declare(stmt.slot, TokenType.STRING, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitNumStmt(Stmt.Num stmt) {
+		declare(stmt.slot, TokenType.NUM, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitCharStmt(Stmt.Char stmt) {
+		declare(stmt.slot, TokenType.CHAR, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitBooleanStmt(Stmt.Boolean stmt) {
+		declare(stmt.slot, TokenType.BOOLEAN, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitIfStmt(Stmt.If stmt) {
+		compile(stmt.condition);
+		int elseJump = emit(JUMP_FALSE, 0, stmt.start);
+
+		compile(stmt.thenBranch);
+
+		if(stmt.elseBranch == null) {
+			patch(elseJump);
+
+			return null;
+		}
+
+		int endJump = emit(JUMP, 0, stmt.start);
+		patch(elseJump);
+		compile(stmt.elseBranch);
+		patch(endJump);
+
+		return null;
+	}
+
+	@Override
+	public Void visitForStmt(Stmt.For stmt) {
+		if(stmt.initializer != null) {
+			compile(stmt.initializer);
+		}
+
+		hoist(stmt.invariants);
+
+		Expr.BinaryOpNode test = null;
+
+		//a counted loop tests and steps its counter in place
+		if(stmt.counter >= 0) {
+			test = (Expr.BinaryOpNode) stmt.condition;
+			compile(test.right);
+			emit(STORE_NUM, stmt.limit, stmt.start);
+			emit(POP, stmt.start);
+		}
+
+		int start = chunk.length;
+		int exit = -1;
+
+		if(test != null) {
+			emit(LOOP_TEST, comparison(test.operator.type), stmt.counter, stmt.start);
+			chunk.write(stmt.limit, stmt.start);
+			exit = chunk.write(0, stmt.start);
+		} else if(stmt.condition != null) {
+			compile(stmt.condition);
+			exit = emit(JUMP_FALSE, 0, stmt.start);
+		}
+
+		Loop current = new Loop(loop);
+		body(stmt.body, current);
+
+		int continueTarget = chunk.length;
+
+		if(test != null) {
+			emit(LOOP_STEP, stmt.counter, constant(stmt.step), stmt.start);
+		} else if(stmt.increment != null) {
+			effect(stmt.increment, stmt.start);
+		}
+
+		int edge = backEdge(stmt, stmt.tier);
+		emit(JUMP, start, stmt.start);
+		patch(edge);
+
+		if(exit >= 0) {
+			patch(exit);
+		}
+
+		endLoop(current, continueTarget);
+
+		return null;
+	}
+
+	//counts the jump back to the loop start, the vm leaves for the exit operand once the Jit has run the rest of the loop
+	private int backEdge(Stmt stmt, Tier.Counter counter) {
+		chunk.write(BACK_EDGE, stmt.start);
+		chunk.write(reference(stmt), stmt.start);
+		chunk.write(reference(counter), stmt.start);
+
+		return chunk.write(0, stmt.start);
+	}
+
+	private static int comparison(TokenType type) {
+		switch(type) {
+			case LESS:
+				return OpCode.LESS;
+			case LTE:
+				return LESS_EQUAL;
+			case GREATER:
+				return OpCode.GREATER;
+			default:
+				return GREATER_EQUAL;
+		}
+	}
+
+	@Override
+	public Void visitWhileStmt(Stmt.While stmt) {
+		hoist(stmt.invariants);
+
+		int start = chunk.length;
+
+		compile(stmt.condition);
+		int exit = emit(JUMP_FALSE, 0, stmt.start);
+
+		Loop current = new Loop(loop);
+		body(stmt.body, current);
+
+		int edge = backEdge(stmt, stmt.tier);
+		emit(JUMP, start, stmt.start);
+		patch(exit);
+		patch(edge);
+		endLoop(current, start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitDoStmt(Stmt.Do stmt) {
+		hoist(stmt.invariants);
+
+		int start = chunk.length;
+
+		Loop current = new Loop(loop);
+		body(stmt.body, current);
+
+		int continueTarget = chunk.length;
+
+		if(stmt.condition != null) {
+			compile(stmt.condition);
+			int exit = emit(JUMP_FALSE, 0, stmt.start);
+			int edge = backEdge(stmt, stmt.tier);
+			emit(JUMP, start, stmt.start);
+			patch(exit);
+			patch(edge);
+		}
+
+		endLoop(current, continueTarget);
+
+		return null;
+	}
+
+	//the dispatch picks a label and the instruction jumps through the targets that follow it
+	@Override
+	public Void visitSwitchStmt(Stmt.Switch stmt) {
+		compile(stmt.value);
+		chunk.write(SWITCH, stmt.start);
+		chunk.write(reference(stmt.dispatch), stmt.start);
+
+		int targets = chunk.length;
+
+		for(int i = 0; i <= stmt.labels.size(); i++) {
+			chunk.write(0, stmt.start);
+		}
+
+		int[] starts = new int[stmt.body.size() + 1];
+		Loop current = new Loop(loop);
+		loop = current;
+
+		for(int i = 0; i < stmt.body.size(); i++) {
+			starts[i] = chunk.length;
+			compile(stmt.body.get(i));
+		}
+
+		starts[stmt.body.size()] = chunk.length;
+		loop = current.enclosing;
+
+		for(int i = 0; i <= stmt.labels.size(); i++) {
+			chunk.code[targets + i] = starts[stmt.entry(i)];
+		}
+
+		for(int operand : current.breaks) {
+			patch(operand);
+		}
+
+		//a continue belongs to the loop around the switch
+		if(!current.continues.isEmpty()) {
+			if(loop == null) {
+				InvalidSyntaxError outside = new InvalidSyntaxError(stmt.start, stmt.end, "'continue' outside of a loop");
+			} else {
+				loop.continues.addAll(current.continues);
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitMethodStmt(Stmt.Method stmt) {
+		Chunk method = compile(stmt.name, stmt.parametters, stmt.types, stmt.body, stmt.frameSize, false, stmt.end);
+		method.declaration = stmt;
+
+		emit(METHOD, reference(method), stmt.start);
+
+		if(stmt.slot >= 0) {
+			emit(STORE, stmt.slot, stmt.start);
+		}
+
+		emit(POP, stmt.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitInitStmt(Stmt.Init stmt) {
+		return null;
+	}
+
+	@Override
+	public Void visitClassStmt(Stmt.Class stmt) {
+		for(Expr.AccessNode supClass : stmt.supClass) {
+			compile(supClass);
+		}
+
+		Chunk init = null;
+
+		if(stmt.constructor != null) {
+			Stmt.Init constructor = stmt.constructor;
+			init = compile(constructor.name, constructor.parametters, constructor.types, constructor.body, constructor.frameSize, true, constructor.end);
+		}
+
+		Chunk[] methods = new Chunk[stmt.methods.size()];
+
+		for(int i = 0; i < methods.length; i++) {
+			Stmt.Method method = stmt.methods.get(i);
+			methods[i] = compile(method.name, method.parametters, method.types, method.body, method.frameSize, false, method.end);
+			methods[i].declaration = method;
+		}
+
+		Chunk.ClassInfo info = new Chunk.ClassInfo((String) stmt.name.literal, stmt.supClass.size(), init, methods);
+		emit(CLASS, reference(info), stmt.start);
+
+		if(stmt.slot >= 0) {
+			emit(STORE, stmt.slot, stmt.start);
+		}
+
+		emit(POP, stmt.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitEnumStmt(Stmt.Enum stmt) {
+		emit(ENUM, reference(stmt), stmt.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitReturnStmt(Stmt.Return stmt) {
+		if(stmt.value.isEmpty()) {
+			emit(NIL, stmt.start);
+		} else {
+			for(Expr value : stmt.value) {
+				compile(value);
+			}
+
+			if(stmt.value.size() > 1) {
+				emit(LIST, stmt.value.size(), stmt.start);
+			}
+		}
+
+		emit(RETURN, stmt.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitContinueStmt(Stmt.Continue stmt) {
+		if(loop == null) {
+			InvalidSyntaxError outside = new InvalidSyntaxError(stmt.start, stmt.end, "'continue' outside of a loop");
+
+			return null;
+		}
+
+		loop.continues.add(emit(JUMP, 0, stmt.start));
+
+		return null;
+	}
+
+	@Override
+	public Void visitBreakStmt(Stmt.Break stmt) {
+		if(loop == null) {
+			InvalidSyntaxError outside = new InvalidSyntaxError(stmt.start, stmt.end, "'break' outside of a loop");
+
+			return null;
+		}
+
+		loop.breaks.add(emit(JUMP, 0, stmt.start));
+
+		return null;
+	}
+
+	@Override
+	public Void visitPrintStmt(Stmt.Print stmt) {
+		compile(stmt.expression);
+		emit(PRINT, stmt.start);
+
+		return null;
+	}
+
+	@Override
+	public Void visitInputStmt(Stmt.Input stmt) {
+		if(stmt.expression != null) {
+			compile(stmt.expression);
+		}
+
+		emit(INPUT, stmt.expression != null ? 1 : 0, stmt.start);
+
+		return null;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package inaf;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//where a switch goes for a value, built once from the case labels so matching never tests the cases in turn
+//every target is the index of a label, labels.size() when none matches
+final class Dispatch {
+	//a label naming an enum value, lowered to the ordinal the value gets in its declaration
+	static final class Ordinal {
+		final Stmt.Enum declaration;
+		final int ordinal;
+
+		Ordinal(Stmt.Enum declaration, int ordinal) {
+			this.declaration = declaration;
+			this.ordinal = ordinal;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Ordinal && ((Ordinal) other).declaration == declaration && ((Ordinal) other).ordinal == ordinal;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(declaration) * 31 + ordinal;
+		}
+	}
+
+	private final int none;
+	//the values of the first enum in the labels, indexed by ordinal
+	private Stmt.Enum declaration;
+	private int[] ordinals;
+	//integral num labels close together, indexed by value - low
+	private int low;
+	private int[] dense;
+	//every other label by its Double, String, Boolean or Ordinal, strings match on a hash instead of a compare per case
+	private final Map<Object, Integer> lookup = new HashMap<>();
+
+	//keys are unique, the Resolver reports a duplicate label before building the table
+	Dispatch(List<Object> keys) {
+		none = keys.size();
+
+		int integral = 0;
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+
+		for(Object key : keys) {
+			if(key instanceof Ordinal && declaration == null) {
+				declaration = ((Ordinal) key).declaration;
+				ordinals = new int[declaration.enumValue.size()];
+				Arrays.fill(ordinals, none);
+			}
+
+			if(key instanceof Double && integral((Double) key)) {
+				integral++;
+				min = Math.min(min, (int) (double) (Double) key);
+				max = Math.max(max, (int) (double) (Double) key);
+			}
+		}
+
+		//a table a few times larger than the labels is still cheaper than hashing a boxed num
+		if(integral > 0 && (long) max - min < integral * 2L + 8) {
+			low = min;
+			dense = new int[max - min + 1];
+			Arrays.fill(dense, none);
+		}
+
+		for(int i = 0; i < keys.size(); i++) {
+			Object key = keys.get(i);
+
+			if(key instanceof Ordinal && ((Ordinal) key).declaration == declaration) {
+				ordinals[((Ordinal) key).ordinal] = i;
+			} else if(dense != null && key instanceof Double && integral((Double) key)) {
+				dense[(int) (double) (Double) key - low] = i;
+			} else {
+				lookup.put(key, i);
+			}
+		}
+	}
+
+	//-0 passes too, it matches the label 0 like '==' would
+	private static boolean integral(double value) {
+		return (int) value == value;
+	}
+
+	int target(double value) {
+		if(dense != null && integral(value)) {
+			int index = (int) value - low;
+
+			if(index >= 0 && index < dense.length) {
+				return dense[index];
+			}
+		}
+
+		if(lookup.isEmpty()) {
+			return none;
+		}
+
+		//adding 0 turns -0 into 0, nan is never a label so it finds nothing
+		Integer target = lookup.get(value + 0.0);
+
+		return target == null ? none : target;
+	}
+
+	int target(Object value) {
+		if(value instanceof Double) {
+			return target((double) (Double) value);
+		}
+
+		if(value instanceof InafEnum.Value) {
+			InafEnum.Value constant = (InafEnum.Value) value;
+
+			//every run of the same enum statement gives values of that declaration
+			if(constant.owner.declaration == declaration) {
+				return ordinals[constant.ordinal];
+			}
+
+			value = new Ordinal(constant.owner.declaration, constant.ordinal);
+		} else if(value instanceof CharSequence) {
+			value = value.toString();
+		}
+
+		Integer target = lookup.get(value);
+
+		return target == null ? none : target;
+	}
+}
\ No newline at end of file
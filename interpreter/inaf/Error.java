@@ -17,7 +17,7 @@ class Error {
 	}
 
 	private void error() {
-		System.out.println(errorName + ": " + details + " at file " + start.fn + " line " + (start.ln + 1) +
+		System.out.println(errorName + ": " + details + " at file " + start.fn + " line " + (start.ln() + 1) +
 							 "\n\n" + arrowString());
 
 		hadError = true;
@@ -26,27 +26,22 @@ class Error {
 	private String arrowString() {
 		String result = "";
 
-		int idxStart = Math.max(0, start.ftxt.substring(0, start.idx).lastIndexOf("\n"));
-		int idxEnd = start.ftxt.indexOf("\n", idxStart + 1);
-
-		if(idxEnd < 0) {
-			idxEnd = start.ftxt.length();
-		}
-
-		int lineCount = end.ln - start.ln + 1;
+		int idxStart = start.source.lineStart(start.idx);
+		int lineCount = end.ln() - start.ln() + 1;
 
 		for(int i = 0; i < lineCount; i++) {
-			String line = start.ftxt.substring(idxStart, idxEnd);
+			int idxEnd = start.source.lineEnd(idxStart);
+			String line = start.source.text(idxStart, idxEnd);
 
 			int colStart, colEnd;
 			if(i == 0) {
-				colStart = start.col;
+				colStart = start.col();
 			} else {
 				colStart = 0;
 			}
 
 			if(i == lineCount - 1) {
-				colEnd = end.col;
+				colEnd = end.col();
 			} else {
 				colEnd = line.length() - 1;
 			}
@@ -60,6 +55,8 @@ class Error {
 			for(int k = 0; k < colEnd - colStart; k++) {
 				result += "^";
 			}
+
+			idxStart = idxEnd + 1;
 		}
 
 		return result.replace("\t", "");
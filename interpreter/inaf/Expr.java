@@ -3,7 +3,6 @@ package inaf;
 import static inaf.TokenType.*;
 
 import java.util.List;
-import java.util.Collection;
 
 abstract class Expr {
 	interface Visitor<R> {
@@ -17,28 +16,28 @@ abstract class Expr {
 		R visitUnaryOpNode(UnaryOpNode expr);
 		R visitCallNode(CallNode expr);
 		R visitGetNode(GetNode expr);
+		R visitSetNode(SetNode expr);
 		R visitThisNode(ThisNode expr);
 		R visitSuperNode(SuperNode expr);
 	}
 
 	abstract <R> R accept(Visitor<R> visitor);
-	abstract String toString();
-	final Position start;
-	final Position end;
+	Position start;
+	Position end;
 
 	static class NumberNode extends Expr {
 		final Token token;
-		final Position start;
-		final Position end;
+		final double value;
 
 		NumberNode(Token token) {
 			this.token = token;
+			this.value = ((Number) token.literal).doubleValue();
 			this.start = token.start;
 			this.end = token.end;
 		}
 
 		@Override
-		String toString() {
+		public String toString() {
 			return "" + token;
 		}
 
@@ -50,8 +49,6 @@ abstract class Expr {
 
 	static class StringNode extends Expr {
 		final Token token;
-		final Position start;
-		final Position end;
 
 		StringNode(Token token) {
 			this.token = token;
@@ -60,7 +57,7 @@ abstract class Expr {
 		}
 
 		@Override
-		String toString() {
+		public String toString() {
 			return "" + token;
 		}
 
@@ -73,50 +70,68 @@ abstract class Expr {
 	static class LiteralNode extends Expr {
 		final Object value;
 
-		LiteralNode(Object value) {
+		LiteralNode(Object value, Position start, Position end) {
 			this.value = value;
+			this.start = start;
+			this.end = end;
 		}
 
 		@Override
-		String toString() {
-			return "" + token;
+		public String toString() {
+			return "" + value;
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
 			return visitor.visitLiteralNode(this);
 		}
+	}
 
-  	}
+	static class ListNode extends Expr {
+		final List<Expr> elementsNode;
 
-  	static class ListNode extends Expr {
-  		final Collection<E> elementsNode;
-  		final Position start;
-  		final Position end;
+		ListNode(List<Expr> elementsNode, Position start, Position end) {
+			this.elementsNode = elementsNode;
+			this.start = start;
+			this.end = end;
+		}
 
-  		ListNode(Collection<E> elementsNode, Position start, Position end) {
-  			this.elementsNode = elementsNode;
-  			this.start = start;
-  			this.end = end;
-  		}
+		@Override
+		public String toString() {
+			return "" + elementsNode;
+		}
 
-  		@Override
-  		<R> R accept(Visitor<R> visitor) {
-  			return visitor.visitListNode(this);
-  		}
-  	}
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitListNode(this);
+		}
+	}
 
 	static class AssignNode extends Expr {
 		final Token token;
 		final Expr value;
-		final Position start;
-		final Position end;
+		//set by the Resolver, a depth of -1 is a global looked up by name
+		int depth = -1;
+		int slot = -1;
+		TokenType type = VAR;
+		//x++ and x--, the value is x before the update
+		final boolean postfix;
 
 		AssignNode(Token token, Expr value) {
+			this(token, value, false);
+		}
+
+		AssignNode(Token token, Expr value, boolean postfix) {
 			this.token = token;
 			this.value = value;
+			this.postfix = postfix;
 			this.start = token.start;
-			this.end = token.end;
+			this.end = value.end;
+		}
+
+		@Override
+		public String toString() {
+			return token.literal + " = " + value;
 		}
 
 		@Override
@@ -127,8 +142,10 @@ abstract class Expr {
 
 	static class AccessNode extends Expr {
 		final Token token;
-		final Position start;
-		final Position end;
+		//set by the Resolver, a depth of -1 is a global looked up by name
+		int depth = -1;
+		int slot = -1;
+		TokenType type = VAR;
 
 		AccessNode(Token token) {
 			this.token = token;
@@ -136,6 +153,11 @@ abstract class Expr {
 			this.end = token.end;
 		}
 
+		@Override
+		public String toString() {
+			return "" + token.literal;
+		}
+
 		@Override
 		<R> R accept(Visitor<R> visitor) {
 			return visitor.visitAccessNode(this);
@@ -146,20 +168,29 @@ abstract class Expr {
 		final Token operator;
 		final Expr left;
 		final Expr right;
-		final Position start;
-		final Position end;
+		//set by the Resolver when both operands are always nums
+		boolean numeric;
+
+		//states of a self-specializing node, it only ever moves towards GENERIC
+		static final int UNINITIALIZED = 0;
+		static final int NUMS = 1;
+		static final int STRINGS = 2;
+		static final int GENERIC = 3;
+		int state = UNINITIALIZED;
+		//set by the Resolver, the num slot a loop invariant is computed into before the loop starts
+		int hoisted = -1;
 
 		BinaryOpNode(Expr left, Token operator, Expr right) {
-			this.token = operator;
+			this.operator = operator;
 			this.left = left;
 			this.right = right;
-			this.start = token.start;
-			this.end = token.end;
+			this.start = left.start;
+			this.end = right.end;
 		}
 
 		@Override
-		String toString() {
-			return left + " " + operator + " " + right;
+		public String toString() {
+			return "(" + left + " " + operator + " " + right + ")";
 		}
 
 		@Override
@@ -171,19 +202,19 @@ abstract class Expr {
 	static class UnaryOpNode extends Expr {
 		final Token operator;
 		final Expr node;
-		final Position start;
-		final Position end;
+		boolean numeric;
+		int hoisted = -1;
 
 		UnaryOpNode(Token operator, Expr node) {
-			this.token = token;
+			this.operator = operator;
 			this.node = node;
-			this.start = token.start;
-			this.end = token.end;
+			this.start = operator.start;
+			this.end = node.end;
 		}
 
 		@Override
-		String toString() {
-			return operator + " " + node;
+		public String toString() {
+			return "(" + operator + " " + node + ")";
 		}
 
 		@Override
@@ -197,8 +228,6 @@ abstract class Expr {
 		final Token lparen;
 		final List<Expr> arguments;
 		final Token rparen;
-		final Position start;
-		final Position end;
 
 		CallNode(Expr callee, Token lparen, List<Expr> arguments, Token rparen) {
 			this.callee = callee;
@@ -207,18 +236,18 @@ abstract class Expr {
 			this.rparen = rparen;
 
 			this.start = callee.start;
+			this.end = rparen.end;
 
-			if(arguments.size() > 0) {
-				this.end = arguments.get(arguments.size() - 1).end;
-			} else {
-				this.end = callee.end;
-			}
-
-			if(rparen == RPAREN || lparen == LPAREN) {
+			if(rparen.type != RPAREN || lparen.type != LPAREN) {
 				ExpectedCharError invalidsyntax = new ExpectedCharError(this.start, this.end, "Expected '(' or ')!'");
 			}
 		}
 
+		@Override
+		public String toString() {
+			return callee + "" + arguments;
+		}
+
 		@Override
 		<R> R accept(Visitor<R> visitor) {
 			return visitor.visitCallNode(this);
@@ -228,33 +257,80 @@ abstract class Expr {
 	static class GetNode extends Expr {
 		final Expr object;
 		final Token token;
-		final Position start;
-		final Position end;
+		//also used by a call whose callee is this node
+		final InlineCache cache = new InlineCache();
 
 		GetNode(Expr object, Token token) {
+			this.object = object;
 			this.token = token;
-			this.node = node;
-			this.start = token.start;
+			this.start = object.start;
 			this.end = token.end;
 		}
 
+		@Override
+		public String toString() {
+			return object + "." + token.literal;
+		}
+
 		@Override
 		<R> R accept(Visitor<R> visitor) {
 			return visitor.visitGetNode(this);
 		}
 	}
 
+	static class SetNode extends Expr {
+		final Expr object;
+		final Token token;
+		final Expr value;
+		final InlineCache cache = new InlineCache();
+		//obj.f += v and obj.f++ read the field through update.left and apply update to it and value, obj is evaluated once
+		final BinaryOpNode update;
+		//obj.f++ and obj.f--, the value is the field before the update
+		final boolean postfix;
+
+		SetNode(Expr object, Token token, Expr value) {
+			this(object, token, null, value, false);
+		}
+
+		SetNode(Expr object, Token token, Token operator, Expr value, boolean postfix) {
+			this.object = object;
+			this.token = token;
+			this.value = value;
+			this.update = operator == null ? null : new BinaryOpNode(new GetNode(object, token), operator, value);
+			this.postfix = postfix;
+			this.start = object.start;
+			this.end = value.end;
+		}
+
+		@Override
+		public String toString() {
+			return object + "." + token.literal + " = " + (update == null ? value : update);
+		}
+
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitSetNode(this);
+		}
+	}
+
 	static class ThisNode extends Expr {
 		final Token keyword;
 
 		ThisNode(Token keyword) {
 			this.keyword = keyword;
+			this.start = keyword.start;
+			this.end = keyword.end;
+		}
+
+		@Override
+		public String toString() {
+			return "this";
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
 			return visitor.visitThisNode(this);
-		}	
+		}
 	}
 
 	static class SuperNode extends Expr {
@@ -263,12 +339,28 @@ abstract class Expr {
 
 		SuperNode(Token keyword, Token method) {
 			this.keyword = keyword;
-			this.method = method
+			this.method = method;
+			this.start = keyword.start;
+
+			if(method != null) {
+				this.end = method.end;
+			} else {
+				this.end = keyword.end;
+			}
+		}
+
+		@Override
+		public String toString() {
+			if(method != null) {
+				return "super." + method.literal;
+			}
+
+			return "super";
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
 			return visitor.visitSuperNode(this);
-		}	
+		}
 	}
 }
\ No newline at end of file
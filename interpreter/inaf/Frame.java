@@ -0,0 +1,34 @@
+package inaf;
+
+class Frame {
+	//a reference slot holding NUM keeps its num unboxed in the double slot of the same index,
+	//so a var that holds a num costs no allocation, a boxed Double in a reference slot is a num as well
+	static final Object NUM = new Object() {
+		@Override
+		public String toString() {
+			return "num";
+		}
+	};
+
+	final Frame enclosing;
+	final Object[] slots;
+	//num slots live here unboxed, the same slot in slots stays unused
+	final double[] nums;
+	final InafInstance self;
+	final InafClass holder;
+
+	Frame(Frame enclosing, int size, InafInstance self, InafClass holder) {
+		this.enclosing = enclosing;
+		this.slots = new Object[size];
+		this.nums = new double[size];
+		this.self = self;
+		this.holder = holder;
+	}
+
+	//the value of a reference slot, boxing a num kept unboxed
+	Object get(int slot) {
+		Object value = slots[slot];
+
+		return value == NUM ? (Object) nums[slot] : value;
+	}
+}
\ No newline at end of file
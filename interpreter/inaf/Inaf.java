@@ -3,15 +3,40 @@ package inaf;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.charset.Charset;
 import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
 
 public class Inaf {
+	static final String VERSION = "0.1";
+	private static boolean incremental = false;
+	private static boolean cache = true;
+	private static boolean vm = false;
+	private static boolean specialize = false;
+	private static final Map<String, Incremental> sessions = new HashMap<>();
+	private static final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+
 	public static void main(String[] args) throws IOException {
-		InputStreamReader input = new InputStreamReader(System.in);
-		BufferedReader reader = new BufferedReader(input);
+		for(String arg : args) {
+			if(arg.equals("--incremental")) {
+				incremental = true;
+			} else if(arg.equals("--no-cache")) {
+				cache = false;
+			} else if(arg.equals("--mode=vm")) {
+				vm = true;
+			} else if(arg.equals("--mode=ast")) {
+				vm = false;
+			} else if(arg.equals("--specialize")) {
+				specialize = true;
+			} else if(arg.equals("--no-jit")) {
+				Tier.enabled = false;
+			} else if(arg.startsWith("--jit-threshold=")) {
+				Tier.calls = threshold(arg, Tier.calls);
+			} else if(arg.startsWith("--osr-threshold=")) {
+				Tier.backEdges = threshold(arg, Tier.backEdges);
+			}
+		}
+
 		System.out.println("Enter file name or file (absolute) path or command to run");
 
 		for(;;) {
@@ -33,13 +58,63 @@ public class Inaf {
 		}
 	}
 
+	//the count after the '=' of a tier option, a malformed one keeps the default
+	private static int threshold(String arg, int fallback) {
+		try {
+			return Math.max(1, Integer.parseInt(arg.substring(arg.indexOf('=') + 1)));
+		} catch(NumberFormatException e) {
+			System.out.println("Ignoring " + arg + ", expected a count");
+
+			return fallback;
+		}
+	}
+
 	private static void run(String path) throws IOException {
-		byte[] bytes = Files.readAllBytes(Paths.get(path));
-		Lexer lexer = new Lexer(path, new String(bytes, Charset.defaultCharset()));
+		List<Stmt> statements;
+
+		if(incremental) {
+			Incremental session = sessions.get(path);
+
+			if(session == null) {
+				session = new Incremental();
+				sessions.put(path, session);
+			}
 
-		List<Token> tokens = lexer.scanTokens();
+			statements = session.parse(Source.read(path));
+		} else {
+			Source source = Source.map(path);
+			ScriptCache scriptCache = cache ? new ScriptCache(source) : null;
+			statements = scriptCache != null ? scriptCache.load() : null;
 
-		Parser parser = new Parser(tokens);
+			if(statements == null) {
+				Lexer lexer = new Lexer(source);
+
+				Parser parser = new Parser(lexer.tokens());
+				statements = parser.parse();
+
+				if(scriptCache != null && !Error.getError()) {
+					scriptCache.store(statements);
+				}
+			}
+		}
+
+		if(!Error.getError()) {
+			statements = Optimizer.optimize(statements);
+			Resolver resolver = new Resolver();
+			int frameSize = resolver.resolve(statements);
+
+			if(!Error.getError() && vm) {
+				Chunk script = Compiler.compile(statements, frameSize);
+
+				if(!Error.getError()) {
+					VM machine = new VM(reader);
+					machine.interpret(script);
+				}
+			} else if(!Error.getError()) {
+				Interpreter interpreter = new Interpreter(reader, specialize);
+				interpreter.interpret(statements, frameSize);
+			}
+		}
 
 		boolean hadError = Error.getError();
 		boolean hadRTError = RTError.getRTError();
@@ -0,0 +1,8 @@
+package inaf;
+
+import java.util.List;
+
+interface InafCallable {
+	int arity();
+	Object call(Interpreter interpreter, List<Object> arguments);
+}
\ No newline at end of file
@@ -0,0 +1,212 @@
+package inaf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class InafClass implements InafCallable {
+	final String name;
+	final List<InafClass> supers;
+	final Map<String, InafMethod> methods = new HashMap<>();
+	InafMethod init;
+	final Shape shape = new Shape(this);
+	//the most fields any instance has needed, new instances are allocated with room for them
+	int fields;
+	int nums;
+	//the chain of first supers from its root down to this class, so an ancestor on it sits at its own depth (a Cohen display)
+	private final InafClass[] display;
+	//ancestors reached only through a later super, null while the whole ancestry is that one chain
+	private final Set<InafClass> others;
+	//this class, then its supers in C3 order, the order methods are looked up in
+	//null when the supers disagree on an order, the class statement then reports an error
+	final List<InafClass> order;
+	//the method for each name after overriding along order, built on the first lookup
+	//it only holds names this class's own ancestry defines, so its size never depends on the other classes
+	private Map<String, InafMethod> vtable;
+	//the same without this class's own methods, for super.name
+	private Map<String, InafMethod> superTable;
+
+	InafClass(String name, List<InafClass> supers) {
+		this.name = name;
+		this.supers = supers;
+
+		if(supers.isEmpty()) {
+			display = new InafClass[] {this};
+		} else {
+			display = Arrays.copyOf(supers.get(0).display, supers.get(0).display.length + 1);
+			display[display.length - 1] = this;
+		}
+
+		//both tables only hold this class's own ancestry, so their size never depends on how many classes exist
+		Set<InafClass> found = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		for(int i = 0; i < supers.size(); i++) {
+			InafClass supClass = supers.get(i);
+
+			if(i > 0) {
+				for(InafClass ancestor : supClass.display) {
+					if(!chain(ancestor)) {
+						found.add(ancestor);
+					}
+				}
+			}
+
+			if(supClass.others != null) {
+				for(InafClass ancestor : supClass.others) {
+					if(!chain(ancestor)) {
+						found.add(ancestor);
+					}
+				}
+			}
+		}
+
+		others = found.isEmpty() ? null : found;
+
+		this.order = linearize(this);
+	}
+
+	//C3, as in python: a class precedes its supers and every merge keeps each super's own order and the declared order
+	//null when the supers disagree, such as class D(B, C) next to class E(C, B)
+	private static List<InafClass> linearize(InafClass klass) {
+		List<List<InafClass>> pending = new ArrayList<>();
+
+		for(InafClass supClass : klass.supers) {
+			pending.add(new ArrayList<>(supClass.order));
+		}
+
+		pending.add(new ArrayList<>(klass.supers));
+
+		List<InafClass> order = new ArrayList<>();
+		order.add(klass);
+
+		for(;;) {
+			pending.removeIf(List::isEmpty);
+
+			if(pending.isEmpty()) {
+				return order;
+			}
+
+			InafClass next = null;
+
+			for(List<InafClass> sequence : pending) {
+				if(!inTail(sequence.get(0), pending)) {
+					next = sequence.get(0);
+					break;
+				}
+			}
+
+			if(next == null) {
+				return null;
+			}
+
+			order.add(next);
+
+			for(List<InafClass> sequence : pending) {
+				if(sequence.get(0) == next) {
+					sequence.remove(0);
+				}
+			}
+		}
+	}
+
+	private static boolean inTail(InafClass klass, List<List<InafClass>> pending) {
+		for(List<InafClass> sequence : pending) {
+			if(sequence.indexOf(klass) > 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	//methods are only defined while the class statement runs, before anything can look one up or inherit from the class
+	//so an inline cache never holds a method of a shape whose class is still changing
+	void define(String name, InafMethod method) {
+		methods.put(name, method);
+		vtable = null;
+		superTable = null;
+	}
+
+	//one probe of the flattened table instead of a walk over order
+	InafMethod findMethod(String name) {
+		if(vtable == null) {
+			vtable = table(0);
+		}
+
+		return vtable.get(name);
+	}
+
+	//the method name resolves to from the code of this class's methods through super, skipping this class
+	InafMethod findSuper(String name) {
+		if(superTable == null) {
+			superTable = table(1);
+		}
+
+		return superTable.get(name);
+	}
+
+	//walks order from the far end so a class earlier in it overrides the ones after
+	private Map<String, InafMethod> table(int from) {
+		Map<String, InafMethod> table = new HashMap<>();
+
+		for(int i = order.size() - 1; i >= from; i--) {
+			table.putAll(order.get(i).methods);
+		}
+
+		return table;
+	}
+
+	InafMethod findInit() {
+		for(InafClass klass : order) {
+			if(klass.init != null) {
+				return klass.init;
+			}
+		}
+
+		return null;
+	}
+
+	//one array read for a single super chain, one hash probe for the rest of a multi-super ancestry, never a walk over the supers
+	boolean isSubclassOf(InafClass other) {
+		return chain(other) || others != null && others.contains(other);
+	}
+
+	private boolean chain(InafClass other) {
+		int depth = other.display.length - 1;
+
+		return depth < display.length && display[depth] == other;
+	}
+
+	@Override
+	public int arity() {
+		InafMethod method = findInit();
+
+		if(method == null) {
+			return 0;
+		}
+
+		return method.arity();
+	}
+
+	@Override
+	public Object call(Interpreter interpreter, List<Object> arguments) {
+		InafInstance instance = new InafInstance(this);
+		InafMethod method = findInit();
+
+		if(method != null) {
+			method.bind(instance).call(interpreter, arguments);
+		}
+
+		return instance;
+	}
+
+	@Override
+	public String toString() {
+		return "<class " + name + ">";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package inaf;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class InafEnum {
+	static class Value {
+		final InafEnum owner;
+		final String name;
+		final int ordinal;
+
+		Value(InafEnum owner, String name, int ordinal) {
+			this.owner = owner;
+			this.name = name;
+			this.ordinal = ordinal;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	final String name;
+	//a switch matches values by declaration and ordinal, so every run of the statement dispatches the same way
+	final Stmt.Enum declaration;
+	final Map<String, Value> values = new LinkedHashMap<>();
+
+	InafEnum(Stmt.Enum declaration) {
+		this.name = declaration.name == null ? null : (String) declaration.name.literal;
+		this.declaration = declaration;
+	}
+
+	Value add(String value) {
+		Value enumValue = new Value(this, value, values.size());
+		values.put(value, enumValue);
+
+		return enumValue;
+	}
+
+	Object get(Token name) {
+		Value value = values.get(name.literal);
+
+		if(value == null) {
+			throw new RTError(name, "Enum '" + this.name + "' has no value '" + name.literal + "'");
+		}
+
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return "<enum " + name + ">";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+package inaf;
+
+import java.util.Arrays;
+
+class InafInstance {
+	//returned by field() when the instance has no such field, none is a valid field value
+	static final Object MISSING = new Object();
+	private static final Object[] NO_FIELDS = {};
+	private static final double[] NO_NUMS = {};
+
+	final InafClass klass;
+	Shape shape;
+	private Object[] fields;
+	private double[] nums;
+
+	InafInstance(InafClass klass) {
+		this.klass = klass;
+		this.shape = klass.shape;
+		//start with room for the largest layout seen so far, most instances end up with the same fields
+		this.fields = klass.fields == 0 ? NO_FIELDS : new Object[klass.fields];
+		this.nums = klass.nums == 0 ? NO_NUMS : new double[klass.nums];
+	}
+
+	Object field(String name) {
+		int location = shape.find(name);
+
+		if(location == Shape.ABSENT) {
+			return MISSING;
+		}
+
+		return get(location);
+	}
+
+	Object get(int location) {
+		if(location >= 0) {
+			return fields[location];
+		}
+
+		return nums[~location];
+	}
+
+	//false when a num field is given something else, the caller then has to go through set()
+	boolean put(int location, Object value) {
+		if(location >= 0) {
+			fields[location] = value;
+
+			return true;
+		}
+
+		if(value instanceof Double) {
+			nums[~location] = (Double) value;
+
+			return true;
+		}
+
+		return false;
+	}
+
+	void set(String name, Object value) {
+		int location = shape.find(name);
+
+		if(location == Shape.ABSENT) {
+			add(name, value);
+		} else if(!put(location, value)) {
+			migrate(shape.generalize(name));
+			put(shape.find(name), value);
+		}
+	}
+
+	private void add(String name, Object value) {
+		Shape next = shape.add(name, value instanceof Double);
+
+		if(next.fields > fields.length) {
+			fields = Arrays.copyOf(fields, Math.max(next.fields, klass.fields));
+		}
+
+		if(next.nums > nums.length) {
+			nums = Arrays.copyOf(nums, Math.max(next.nums, klass.nums));
+		}
+
+		klass.fields = Math.max(klass.fields, next.fields);
+		klass.nums = Math.max(klass.nums, next.nums);
+		shape = next;
+		put(next.location, value);
+	}
+
+	private void migrate(Shape target) {
+		Object[] oldFields = fields;
+		double[] oldNums = nums;
+		Shape old = shape;
+
+		fields = new Object[Math.max(target.fields, oldFields.length)];
+		nums = new double[Math.max(target.nums, oldNums.length)];
+
+		for(Shape field = target; field.name != null; field = field.parent) {
+			int from = old.find(field.name);
+			Object value = from >= 0 ? oldFields[from] : (Object) oldNums[~from];
+
+			if(field.location >= 0) {
+				fields[field.location] = value;
+			} else {
+				nums[~field.location] = (Double) value;
+			}
+		}
+
+		shape = target;
+	}
+
+	@Override
+	public String toString() {
+		return klass.name + " instance";
+	}
+}
\ No newline at end of file
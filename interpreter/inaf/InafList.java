@@ -0,0 +1,194 @@
+package inaf;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+//the value of a list literal, of a multi value return and of '+' on two lists
+//a list never changes once built, so a longer list made with '+' can share the storage of the list it came from
+final class InafList extends AbstractList<Object> implements RandomAccess {
+	//the elements behind one or more lists, nums stay unboxed until anything else is stored
+	private static final class Storage {
+		double[] nums;
+		Object[] values;
+		//the end of the furthest list over this storage, only a list ending here may append in place
+		int used;
+
+		Storage(int capacity) {
+			nums = new double[Math.max(capacity, 4)];
+		}
+
+		int capacity() {
+			return nums != null ? nums.length : values.length;
+		}
+
+		void reserve(int extra) {
+			if(used + extra <= capacity()) {
+				return;
+			}
+
+			//doubling keeps a run of appends linear overall
+			int capacity = Math.max(capacity() * 2, used + extra);
+
+			if(nums != null) {
+				nums = Arrays.copyOf(nums, capacity);
+			} else {
+				values = Arrays.copyOf(values, capacity);
+			}
+		}
+
+		void add(double value) {
+			reserve(1);
+
+			if(nums != null) {
+				nums[used++] = value;
+			} else {
+				values[used++] = value;
+			}
+		}
+
+		void add(Object value) {
+			if(nums != null && !(value instanceof Double)) {
+				box();
+			}
+
+			reserve(1);
+
+			if(nums != null) {
+				nums[used++] = (Double) value;
+			} else {
+				values[used++] = value;
+			}
+		}
+
+		//every list over this storage reads through it, so they all see the boxed elements from now on
+		private void box() {
+			values = new Object[nums.length];
+
+			for(int i = 0; i < used; i++) {
+				values[i] = nums[i];
+			}
+
+			nums = null;
+		}
+
+		Object get(int index) {
+			if(nums != null) {
+				return nums[index];
+			}
+
+			return values[index];
+		}
+	}
+
+	//builds a list element by element, the interpreter and the vm never see it before it is done
+	static final class Builder {
+		private final Storage storage;
+
+		Builder(int capacity) {
+			storage = new Storage(capacity);
+		}
+
+		void add(double value) {
+			storage.add(value);
+		}
+
+		void add(Object value) {
+			storage.add(value);
+		}
+
+		InafList build() {
+			return new InafList(storage, storage.used);
+		}
+	}
+
+	private final Storage storage;
+	private final int size;
+
+	private InafList(Storage storage, int size) {
+		this.storage = storage;
+		this.size = size;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Object get(int index) {
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+
+		return storage.get(index);
+	}
+
+	//a list that ends where its storage is used up grows the storage in place, its own view never sees the new elements
+	//anything else copies itself first, so building a list with list = list + [x] stays amortized linear
+	InafList concat(InafList other) {
+		if(other.size == 0) {
+			return this;
+		}
+
+		Storage target = storage;
+
+		if(size != storage.used) {
+			target = new Storage(size + other.size);
+
+			for(int i = 0; i < size; i++) {
+				add(target, storage, i);
+			}
+		}
+
+		target.reserve(other.size);
+
+		for(int i = 0; i < other.size; i++) {
+			add(target, other.storage, i);
+		}
+
+		return new InafList(target, size + other.size);
+	}
+
+	private static void add(Storage target, Storage source, int index) {
+		if(source.nums != null) {
+			target.add(source.nums[index]);
+		} else {
+			target.add(source.values[index]);
+		}
+	}
+
+	//the same equality as '==' on each element, a rope and a String with the same characters match
+	@Override
+	public boolean equals(Object other) {
+		if(other == this) {
+			return true;
+		}
+
+		if(!(other instanceof InafList) || ((InafList) other).size != size) {
+			return false;
+		}
+
+		InafList list = (InafList) other;
+
+		for(int i = 0; i < size; i++) {
+			if(!Interpreter.equal(storage.get(i), list.storage.get(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 1;
+
+		for(int i = 0; i < size; i++) {
+			Object value = storage.get(i);
+			hash = 31 * hash + (value == null ? 0 : value instanceof CharSequence ? value.toString().hashCode() : value.hashCode());
+		}
+
+		return hash;
+	}
+}
\ No newline at end of file
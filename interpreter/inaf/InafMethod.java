@@ -0,0 +1,89 @@
+package inaf;
+
+import java.util.List;
+
+class InafMethod implements InafCallable {
+	final Token name;
+	final List<Token> parametters;
+	final List<TokenType> types;
+	final List<Stmt> body;
+	final int frameSize;
+	final Frame closure;
+	final InafClass holder;
+	final InafInstance self;
+	final boolean init;
+	//set when the method was compiled for the vm, the tree evaluator runs body instead
+	final Chunk chunk;
+	//the source declaration, null for init methods, the Jit counts and compiles through it
+	final Stmt.Method declaration;
+
+	InafMethod(Stmt.Method declaration, Frame closure, InafClass holder) {
+		this(declaration.name, declaration.parametters, declaration.types, declaration.body, declaration.frameSize, closure, holder, null, false, null, declaration);
+	}
+
+	InafMethod(Stmt.Init declaration, Frame closure, InafClass holder) {
+		this(declaration.name, declaration.parametters, declaration.types, declaration.body, declaration.frameSize, closure, holder, null, true, null, null);
+	}
+
+	InafMethod(Chunk chunk, Frame closure, InafClass holder) {
+		this(chunk.name, chunk.parametters, chunk.types, null, chunk.frameSize, closure, holder, null, chunk.init, chunk, chunk.declaration);
+	}
+
+	private InafMethod(Token name, List<Token> parametters, List<TokenType> types, List<Stmt> body, int frameSize, Frame closure, InafClass holder, InafInstance self, boolean init, Chunk chunk, Stmt.Method declaration) {
+		this.name = name;
+		this.parametters = parametters;
+		this.types = types;
+		this.body = body;
+		this.frameSize = frameSize;
+		this.closure = closure;
+		this.holder = holder;
+		this.self = self;
+		this.init = init;
+		this.chunk = chunk;
+		this.declaration = declaration;
+	}
+
+	InafMethod bind(InafInstance self) {
+		return new InafMethod(name, parametters, types, body, frameSize, closure, holder, self, init, chunk, declaration);
+	}
+
+	Frame frame() {
+		return frame(self);
+	}
+
+	//calls through an inline cache pass the receiver instead of binding a new method
+	Frame frame(InafInstance self) {
+		return new Frame(closure, frameSize, self, holder);
+	}
+
+	@Override
+	public int arity() {
+		return parametters.size();
+	}
+
+	@Override
+	public Object call(Interpreter interpreter, List<Object> arguments) {
+		Frame frame = frame();
+
+		for(int i = 0; i < arguments.size(); i++) {
+			interpreter.bind(frame, i, types.get(i), arguments.get(i), parametters.get(i));
+		}
+
+		Object result = interpreter.invoke(frame, body);
+
+		if(init) {
+			return self;
+		}
+
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		if(name == null) {
+			return "<init>";
+		}
+
+		return "<method " + name.literal + ">";
+	}
+}
\ No newline at end of file
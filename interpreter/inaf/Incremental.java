@@ -0,0 +1,248 @@
+package inaf;
+
+import static inaf.TokenType.*;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+class Incremental {
+	//after this many partial reparses the whole file is parsed again to drop old sources
+	private static final int MAX_EDITS = 64;
+
+	private static class Edit {
+		final Source next;
+		final int start;
+		final int oldEnd;
+		final int delta;
+
+		Edit(Source next, int start, int oldEnd, int delta) {
+			this.next = next;
+			this.start = start;
+			this.oldEnd = oldEnd;
+			this.delta = delta;
+		}
+	}
+
+	private final Map<Source, Edit> edits = new IdentityHashMap<>();
+	private Source current;
+	private List<Stmt> statements;
+
+	private int changeStart;
+	private int oldChangeEnd;
+	private int newChangeEnd;
+	private Source next;
+
+	List<Stmt> parse(Source source) {
+		if(current == null) {
+			return parseAll(source);
+		}
+
+		int length = Math.min(current.length(), source.length());
+		int prefix = 0;
+
+		while(prefix < length && current.byteAt(prefix) == source.byteAt(prefix)) {
+			prefix++;
+		}
+
+		if(prefix == length && current.length() == source.length()) {
+			return statements;
+		}
+
+		int suffix = 0;
+
+		while(suffix < length - prefix && current.byteAt(current.length() - 1 - suffix) == source.byteAt(source.length() - 1 - suffix)) {
+			suffix++;
+		}
+
+		return parse(source, prefix, current.length() - suffix, source.length() - suffix);
+	}
+
+	//the old text [start, oldEnd) was replaced by the new text [start, newEnd)
+	List<Stmt> parse(Source source, int start, int oldEnd, int newEnd) {
+		if(current == null || edits.size() >= MAX_EDITS) {
+			return parseAll(source);
+		}
+
+		this.changeStart = start;
+		this.oldChangeEnd = oldEnd;
+		this.newChangeEnd = newEnd;
+		this.next = source;
+
+		if(!splice(statements)) {
+			return parseAll(source);
+		}
+
+		edits.put(current, new Edit(source, start, oldEnd, newEnd - oldEnd));
+		current = source;
+
+		return statements;
+	}
+
+	private List<Stmt> parseAll(Source source) {
+		Lexer lexer = new Lexer(source);
+		Parser parser = new Parser(lexer.tokens());
+
+		edits.clear();
+		current = source;
+		statements = parser.parse();
+
+		return statements;
+	}
+
+	private boolean splice(List<? extends Stmt> list) {
+		for(int i = 0; i < list.size(); i++) {
+			Stmt statement = list.get(i);
+
+			if(statement == null || !encloses(statement)) {
+				continue;
+			}
+
+			if(spliceChildren(statement)) {
+				return true;
+			}
+
+			if(!(statement instanceof Stmt.Method || statement instanceof Stmt.Class || statement instanceof Stmt.Block)) {
+				return false;
+			}
+
+			Stmt replacement = reparse(statement);
+
+			if(replacement == null) {
+				return false;
+			}
+
+			@SuppressWarnings("unchecked")
+			List<Stmt> target = (List<Stmt>) list;
+			target.set(i, replacement);
+
+			return true;
+		}
+
+		return false;
+	}
+
+	private boolean spliceChildren(Stmt statement) {
+		if(statement instanceof Stmt.Method) {
+			return splice(((Stmt.Method) statement).body);
+		} else if(statement instanceof Stmt.Block) {
+			return splice(((Stmt.Block) statement).statements);
+		} else if(statement instanceof Stmt.Class) {
+			Stmt.Class klass = (Stmt.Class) statement;
+
+			if(klass.constructor != null && encloses(klass.constructor)) {
+				return splice(klass.constructor.body);
+			}
+
+			return splice(klass.methods);
+		} else if(statement instanceof Stmt.If) {
+			Stmt.If ifStmt = (Stmt.If) statement;
+
+			return splice(ifStmt.thenBranch) || (ifStmt.elseBranch != null && splice(ifStmt.elseBranch));
+		} else if(statement instanceof Stmt.For) {
+			return splice(((Stmt.For) statement).body);
+		} else if(statement instanceof Stmt.While) {
+			return splice(((Stmt.While) statement).body);
+		} else if(statement instanceof Stmt.Do) {
+			return splice(((Stmt.Do) statement).body);
+		} else if(statement instanceof Stmt.Switch) {
+			return splice(((Stmt.Switch) statement).body);
+		}
+
+		return false;
+	}
+
+	private boolean encloses(Stmt statement) {
+		return offset(statement.start) < changeStart && oldChangeEnd < offset(statement.end);
+	}
+
+	private Stmt reparse(Stmt statement) {
+		int start = offset(statement.start);
+		int end = offset(statement.end) + newChangeEnd - oldChangeEnd;
+
+		Lexer lexer = new Lexer(next, start, end);
+		TokenBuffer tokens = lexer.scanTokens();
+
+		if(!balanced(tokens, statement)) {
+			return null;
+		}
+
+		Stmt replacement = new Parser(tokens).parseDeclaration();
+
+		if(replacement == null || replacement.getClass() != statement.getClass()) {
+			return null;
+		}
+
+		return replacement;
+	}
+
+	//the window must still be one bracketed unit, otherwise the edit reached outside of it
+	private static boolean balanced(TokenBuffer tokens, Stmt statement) {
+		TokenType first = tokens.type(0);
+
+		if(statement instanceof Stmt.Method && first != METHOD) {
+			return false;
+		}
+
+		if(statement instanceof Stmt.Class && first != CLASS) {
+			return false;
+		}
+
+		if(statement instanceof Stmt.Block && first != LBRACE) {
+			return false;
+		}
+
+		int depth = 0;
+		int last = 0;
+
+		for(int i = 0; i < tokens.size(); i++) {
+			switch(tokens.type(i)) {
+				case LPAREN:
+				case LBRACE:
+				case LBRACKET:
+					depth++;
+					break;
+				case RPAREN:
+				case RBRACE:
+				case RBRACKET:
+					depth--;
+
+					if(depth < 0) {
+						return false;
+					}
+
+					last = i;
+					break;
+				case EOF:
+					break;
+				default:
+					last = i;
+					break;
+			}
+		}
+
+		return depth == 0 && tokens.type(last) == RBRACE;
+	}
+
+	//maps an offset of a reused node to the same place in the current text
+	private int offset(Position position) {
+		int idx = position.idx;
+		Source source = position.source;
+
+		while(source != current) {
+			Edit edit = edits.get(source);
+
+			if(edit == null) {
+				break;
+			}
+
+			if(idx >= edit.oldEnd) {
+				idx += edit.delta;
+			}
+
+			source = edit.next;
+		}
+
+		return idx;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package inaf;
+
+//remembers where a property or call site found its name for each receiver shape it has seen
+class InlineCache {
+	//a site that sees more shapes than this stops caching and always looks up
+	private static final int POLYMORPHIC = 4;
+
+	private final Shape[] shapes = new Shape[POLYMORPHIC];
+	//the field location, or Shape.ABSENT when the name is a method
+	private final int[] locations = new int[POLYMORPHIC];
+	private final InafMethod[] methods = new InafMethod[POLYMORPHIC];
+	private int size;
+
+	Object field(InafInstance instance, String name) {
+		int entry = entry(instance.shape, name);
+
+		if(entry < 0) {
+			return instance.field(name);
+		}
+
+		if(locations[entry] == Shape.ABSENT) {
+			return InafInstance.MISSING;
+		}
+
+		return instance.get(locations[entry]);
+	}
+
+	InafMethod method(InafInstance instance, String name) {
+		int entry = entry(instance.shape, name);
+
+		if(entry < 0) {
+			return instance.klass.findMethod(name);
+		}
+
+		return methods[entry];
+	}
+
+	void set(InafInstance instance, String name, Object value) {
+		int entry = entry(instance.shape, name);
+
+		if(entry < 0 || locations[entry] == Shape.ABSENT || !instance.put(locations[entry], value)) {
+			instance.set(name, value);
+		}
+	}
+
+	private int entry(Shape shape, String name) {
+		for(int i = 0; i < size; i++) {
+			if(shapes[i] == shape) {
+				return i;
+			}
+		}
+
+		if(size == POLYMORPHIC) {
+			return -1;
+		}
+
+		shapes[size] = shape;
+		locations[size] = shape.find(name);
+
+		if(locations[size] == Shape.ABSENT) {
+			methods[size] = shape.klass.findMethod(name);
+		}
+
+		return size++;
+	}
+}
\ No newline at end of file
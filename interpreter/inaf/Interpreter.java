@@ -0,0 +1,1523 @@
+package inaf;
+
+import static inaf.TokenType.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
+	//control flow signals carry no stack trace and are shared, so leaving a loop allocates nothing
+	private static class Signal extends RuntimeException {
+		Signal() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final Signal BREAK = new Signal();
+	private static final Signal CONTINUE = new Signal();
+	private static final Signal RETURN = new Signal();
+	//a return of a call, invoke() runs the callee in place of the method that returned
+	private static final Signal TAIL = new Signal();
+	//the Java stack ran out, nothing may be allocated until it has unwound to interpret()
+	private static final Signal OVERFLOW = new Signal();
+
+	//a speculative num evaluation met another value, the caller falls back to the generic path
+	private static class Unexpected extends RuntimeException {
+		final Object value;
+
+		Unexpected(Object value) {
+			super(null, null, false, false);
+			this.value = value;
+		}
+	}
+
+	//names the Resolver could not bind, such as builtins or assignments to undeclared names
+	final Map<String, Object> globals = new HashMap<>();
+	private final BufferedReader input;
+	//operator nodes rewrite their state from the operand types they see
+	private final boolean specialize;
+	private Frame frame;
+	private Object returnValue;
+	private Frame tailFrame;
+	private List<Stmt> tailBody;
+	private Token overflow;
+
+	Interpreter(BufferedReader input, boolean specialize) {
+		this.input = input;
+		this.specialize = specialize;
+	}
+
+	void interpret(List<Stmt> statements, int frameSize) {
+		frame = new Frame(null, frameSize, null, null);
+
+		try {
+			//top level methods can be called before the line that declares them
+			for(Stmt statement : statements) {
+				if(statement instanceof Stmt.Method) {
+					execute(statement);
+				}
+			}
+
+			for(Stmt statement : statements) {
+				if(!(statement instanceof Stmt.Method)) {
+					execute(statement);
+				}
+			}
+		} catch(RTError error) {
+			report(error);
+		} catch(Signal signal) {
+			//a stray break, continue or return simply ends the script
+			if(signal == OVERFLOW) {
+				report(new RTError(overflow, "Stack overflow"));
+			}
+		}
+	}
+
+	private static void report(RTError error) {
+		System.out.println("Runtime Error: " + error.getMessage() + " at file " + error.token.start.fn + " line " + (error.token.start.ln() + 1));
+	}
+
+	private void execute(Stmt statement) {
+		statement.accept(this);
+	}
+
+	void execute(List<Stmt> statements) {
+		for(int i = 0; i < statements.size(); i++) {
+			statements.get(i).accept(this);
+		}
+	}
+
+	Object invoke(Frame callFrame, List<Stmt> body) {
+		Frame previous = frame;
+		frame = callFrame;
+
+		try {
+			for(;;) {
+				try {
+					execute(body);
+
+					return null;
+				} catch(Signal signal) {
+					if(signal == TAIL) {
+						frame = tailFrame;
+						body = tailBody;
+						tailFrame = null;
+						tailBody = null;
+
+						continue;
+					}
+
+					if(signal != RETURN) {
+						throw signal;
+					}
+
+					Object value = returnValue;
+					returnValue = null;
+
+					return value;
+				}
+			}
+		} finally {
+			frame = previous;
+		}
+	}
+
+	void bind(Frame target, int slot, TokenType type, Object value, Token token) {
+		if(type == NUM) {
+			target.nums[slot] = number(value, token);
+		} else {
+			target.slots[slot] = check(type, value, token);
+		}
+	}
+
+	private Object evaluate(Expr expr) {
+		return expr.accept(this);
+	}
+
+	//the unboxed path, anything that is not statically a num is evaluated and unboxed once
+	double evaluateDouble(Expr expr) {
+		if(expr instanceof Expr.NumberNode) {
+			return ((Expr.NumberNode) expr).value;
+		} else if(expr instanceof Expr.AccessNode) {
+			Expr.AccessNode access = (Expr.AccessNode) expr;
+
+			if(access.depth >= 0) {
+				Frame target = frame(access.depth);
+
+				if(access.type == NUM || target.slots[access.slot] == Frame.NUM) {
+					return target.nums[access.slot];
+				}
+			}
+		} else if(expr instanceof Expr.AssignNode) {
+			Expr.AssignNode assign = (Expr.AssignNode) expr;
+
+			if(assign.type == NUM && assign.depth >= 0) {
+				double old = assign.postfix ? frame(assign.depth).nums[assign.slot] : 0;
+				double value = evaluateDouble(assign.value);
+				frame(assign.depth).nums[assign.slot] = value;
+
+				return assign.postfix ? old : value;
+			}
+		} else if(expr instanceof Expr.BinaryOpNode) {
+			Expr.BinaryOpNode binary = (Expr.BinaryOpNode) expr;
+
+			if(binary.hoisted >= 0) {
+				return frame.nums[binary.hoisted];
+			}
+
+			if(binary.numeric) {
+				switch(binary.operator.type) {
+					case PLUS:
+						return evaluateDouble(binary.left) + evaluateDouble(binary.right);
+					case MINUS:
+						return evaluateDouble(binary.left) - evaluateDouble(binary.right);
+					case MUL:
+						return evaluateDouble(binary.left) * evaluateDouble(binary.right);
+					case DIV:
+						return divide(evaluateDouble(binary.left), evaluateDouble(binary.right), binary.operator);
+					case MOD:
+						return modulo(evaluateDouble(binary.left), evaluateDouble(binary.right), binary.operator);
+					default:
+						break;
+				}
+			}
+
+			//minus, times, divide and modulo only ever produce nums, plus does when both sides do
+			switch(binary.operator.type) {
+				case PLUS:
+					if(producesNum(binary.left) && producesNum(binary.right)) {
+						return evaluateDouble(binary.left) + evaluateDouble(binary.right);
+					}
+
+					break;
+				case MINUS:
+				case MUL:
+				case DIV:
+				case MOD: {
+					if(producesNum(binary.left)) {
+						double left = evaluateDouble(binary.left);
+
+						return arithmetic(binary.operator, left, operand(binary.right, binary.operator));
+					}
+
+					//both sides are evaluated before either is checked, like the boxed path does
+					Object left = evaluate(binary.left);
+					double right = operand(binary.right, binary.operator);
+
+					return arithmetic(binary.operator, number(left, binary.operator), right);
+				}
+				default:
+					break;
+			}
+		} else if(expr instanceof Expr.UnaryOpNode) {
+			Expr.UnaryOpNode unary = (Expr.UnaryOpNode) expr;
+
+			if(unary.hoisted >= 0) {
+				return frame.nums[unary.hoisted];
+			}
+
+			if(unary.operator.type == MINUS) {
+				return -operand(unary.node, unary.operator);
+			}
+		}
+
+		if(specialize && expr instanceof Expr.BinaryOpNode) {
+			try {
+				return speculate(expr);
+			} catch(Unexpected unexpected) {
+				return number(unexpected.value, token(expr));
+			}
+		}
+
+		return number(evaluate(expr), token(expr));
+	}
+
+	boolean condition(Expr expr) {
+		if(expr instanceof Expr.BinaryOpNode) {
+			Expr.BinaryOpNode binary = (Expr.BinaryOpNode) expr;
+
+			if(binary.numeric) {
+				switch(binary.operator.type) {
+					case GREATER:
+						return evaluateDouble(binary.left) > evaluateDouble(binary.right);
+					case GTE:
+						return evaluateDouble(binary.left) >= evaluateDouble(binary.right);
+					case LESS:
+						return evaluateDouble(binary.left) < evaluateDouble(binary.right);
+					case LTE:
+						return evaluateDouble(binary.left) <= evaluateDouble(binary.right);
+					case DEQUAL:
+						return evaluateDouble(binary.left) == evaluateDouble(binary.right);
+					case NOTEQUAL:
+						return evaluateDouble(binary.left) != evaluateDouble(binary.right);
+					default:
+						break;
+				}
+			}
+
+			if(comparison(binary.operator.type) && producesNum(binary.left) && producesNum(binary.right)) {
+				return compare(binary.operator.type, evaluateDouble(binary.left), evaluateDouble(binary.right));
+			}
+
+			if(specialize && binary.state == Expr.BinaryOpNode.NUMS && comparison(binary.operator.type)) {
+				return truthy(specialized(binary));
+			}
+
+			if(binary.operator.type == AND) {
+				return condition(binary.left) && condition(binary.right);
+			} else if(binary.operator.type == OR) {
+				return condition(binary.left) || condition(binary.right);
+			}
+		} else if(expr instanceof Expr.UnaryOpNode) {
+			Expr.UnaryOpNode unary = (Expr.UnaryOpNode) expr;
+
+			if(unary.operator.type == NOT) {
+				return !condition(unary.node);
+			}
+		}
+
+		return truthy(evaluate(expr));
+	}
+
+	//whether expr yields a num or fails, told without evaluating it from its shape and from which var slots hold unboxed nums now
+	private boolean producesNum(Expr expr) {
+		if(Resolver.numeric(expr)) {
+			return true;
+		}
+
+		if(expr instanceof Expr.AccessNode) {
+			Expr.AccessNode access = (Expr.AccessNode) expr;
+
+			return access.depth >= 0 && frame(access.depth).slots[access.slot] == Frame.NUM;
+		}
+
+		if(expr instanceof Expr.BinaryOpNode) {
+			Expr.BinaryOpNode binary = (Expr.BinaryOpNode) expr;
+
+			switch(binary.operator.type) {
+				case PLUS:
+					return producesNum(binary.left) && producesNum(binary.right);
+				case MINUS:
+				case MUL:
+				case DIV:
+				case MOD:
+					return true;
+				default:
+					return false;
+			}
+		}
+
+		return expr instanceof Expr.UnaryOpNode && ((Expr.UnaryOpNode) expr).operator.type == MINUS;
+	}
+
+	//an operand of an operator that only takes nums, reported at the operator like the boxed path does
+	private double operand(Expr expr, Token operator) {
+		if(producesNum(expr)) {
+			return evaluateDouble(expr);
+		}
+
+		return number(evaluate(expr), operator);
+	}
+
+	//evaluates an expression whose value is thrown away, nums never get boxed here
+	private void discard(Expr expr) {
+		if(Resolver.numeric(expr)) {
+			evaluateDouble(expr);
+		} else if(expr instanceof Expr.AssignNode) {
+			Expr.AssignNode assign = (Expr.AssignNode) expr;
+
+			if(assign.depth < 0 || !unboxed(frame(assign.depth), assign.slot, assign.type, assign.value)) {
+				assign(assign);
+			}
+		} else {
+			evaluate(expr);
+		}
+	}
+
+	private Frame frame(int depth) {
+		Frame target = frame;
+
+		for(int i = 0; i < depth; i++) {
+			target = target.enclosing;
+		}
+
+		return target;
+	}
+
+	private Frame methodFrame() {
+		Frame target = frame;
+
+		while(target != null && target.self == null) {
+			target = target.enclosing;
+		}
+
+		return target;
+	}
+
+	private void store(int slot, Object value) {
+		if(slot >= 0) {
+			frame.slots[slot] = value;
+		}
+	}
+
+	private void declare(int slot, TokenType type, Token name, Expr initializer) {
+		if(slot < 0) {
+			return;
+		}
+
+		if(type == NUM) {
+			frame.nums[slot] = initializer == null ? 0 : evaluateDouble(initializer);
+		} else if(!unboxed(frame, slot, type, initializer)) {
+			frame.slots[slot] = check(type, initializer == null ? null : evaluate(initializer), name);
+		}
+	}
+
+	//a var or const given a num expression keeps it unboxed behind Frame.NUM, false when the value has to go through evaluate
+	private boolean unboxed(Frame target, int slot, TokenType type, Expr value) {
+		if((type != VAR && type != CONST) || value == null || !producesNum(value)) {
+			return false;
+		}
+
+		target.nums[slot] = evaluateDouble(value);
+		target.slots[slot] = Frame.NUM;
+
+		return true;
+	}
+
+	static Object check(TokenType type, Object value, Token token) {
+		if(!matches(type, value)) {
+			throw new RTError(token, "Expected " + expected(type) + " for '" + token.literal + "'");
+		}
+
+		return value;
+	}
+
+	//whether a value may be stored in a slot declared with the given type, none fits every slot
+	static boolean matches(TokenType type, Object value) {
+		if(value == null) {
+			return true;
+		}
+
+		switch(type) {
+			case STRING:
+				return value instanceof CharSequence;
+			case CHAR:
+				return value instanceof CharSequence && ((CharSequence) value).length() == 1;
+			case BOOLEAN:
+				return value instanceof java.lang.Boolean;
+			default:
+				return true;
+		}
+	}
+
+	static String expected(TokenType type) {
+		switch(type) {
+			case STRING:
+				return "a string value";
+			case CHAR:
+				return "a single character";
+			case BOOLEAN:
+				return "a boolean value";
+			case NUM:
+				return "a num";
+			default:
+				return "a value";
+		}
+	}
+
+	private static double number(Object value, Token token) {
+		if(value instanceof Double) {
+			return (Double) value;
+		}
+
+		throw new RTError(token, "Expected a num but got " + stringify(value));
+	}
+
+	private static double divide(double left, double right, Token operator) {
+		if(right == 0) {
+			throw new RTError(operator, "Division by zero");
+		}
+
+		return left / right;
+	}
+
+	static double modulo(double left, double right, Token operator) {
+		if(right == 0) {
+			throw new RTError(operator, "Division by zero");
+		}
+
+		//integral operands take the long remainder, the double one is a slow runtime call
+		if(left == (long) left && right == (long) right) {
+			return (long) left % (long) right;
+		}
+
+		return left % right;
+	}
+
+	static boolean truthy(Object value) {
+		if(value == null) {
+			return false;
+		}
+
+		if(value instanceof java.lang.Boolean) {
+			return (java.lang.Boolean) value;
+		}
+
+		if(value instanceof Double) {
+			return (Double) value != 0;
+		}
+
+		return true;
+	}
+
+	static boolean equal(Object left, Object right) {
+		if(left == null) {
+			return right == null;
+		}
+
+		//a rope and a String with the same characters are the same string
+		if(left instanceof CharSequence && right instanceof CharSequence) {
+			return left.toString().equals(right.toString());
+		}
+
+		//boxed nums compare like unboxed ones, -0 is 0 and nan is not even itself
+		if(left instanceof Double && right instanceof Double) {
+			return (double) (Double) left == (double) (Double) right;
+		}
+
+		return left.equals(right);
+	}
+
+	//an ordering or equality test on two nums, every comparison with nan but '!=' is false
+	static boolean compare(TokenType operator, double left, double right) {
+		switch(operator) {
+			case GREATER:
+				return left > right;
+			case GTE:
+				return left >= right;
+			case LESS:
+				return left < right;
+			case LTE:
+				return left <= right;
+			case DEQUAL:
+				return left == right;
+			default:
+				return left != right;
+		}
+	}
+
+	//'+' with a string on either side, the result keeps both pieces instead of copying them
+	static CharSequence concat(Object left, Object right) {
+		return Rope.concat(left instanceof CharSequence ? (CharSequence) left : stringify(left), right instanceof CharSequence ? (CharSequence) right : stringify(right));
+	}
+
+	private static Token token(Expr expr) {
+		return new Token(IDENTIFIER, null, expr.start, expr.end);
+	}
+
+	static String stringify(double value) {
+		if(value == (long) value) {
+			return Long.toString((long) value);
+		}
+
+		return Double.toString(value);
+	}
+
+	static String stringify(Object value) {
+		if(value == null) {
+			return "none";
+		}
+
+		if(value instanceof Double) {
+			return stringify((double) (Double) value);
+		}
+
+		if(value instanceof List) {
+			StringBuilder builder = new StringBuilder("[");
+			List<?> list = (List<?>) value;
+
+			for(int i = 0; i < list.size(); i++) {
+				if(i > 0) {
+					builder.append(", ");
+				}
+
+				builder.append(stringify(list.get(i)));
+			}
+
+			return builder.append("]").toString();
+		}
+
+		return value.toString();
+	}
+
+	@Override
+	public Object visitNumberNode(Expr.NumberNode expr) {
+		return expr.value;
+	}
+
+	@Override
+	public Object visitStringNode(Expr.StringNode expr) {
+		return expr.token.literal;
+	}
+
+	@Override
+	public Object visitLiteralNode(Expr.LiteralNode expr) {
+		return expr.value;
+	}
+
+	@Override
+	public Object visitListNode(Expr.ListNode expr) {
+		InafList.Builder list = new InafList.Builder(expr.elementsNode.size());
+
+		for(Expr element : expr.elementsNode) {
+			if(Resolver.numeric(element)) {
+				list.add(evaluateDouble(element));
+			} else {
+				list.add(evaluate(element));
+			}
+		}
+
+		return list.build();
+	}
+
+	@Override
+	public Object visitAssignNode(Expr.AssignNode expr) {
+		if(expr.postfix) {
+			Object old = evaluate(((Expr.BinaryOpNode) expr.value).left);
+			assign(expr);
+
+			return old;
+		}
+
+		return assign(expr);
+	}
+
+	private Object assign(Expr.AssignNode expr) {
+		if(expr.depth < 0) {
+			Object value = evaluate(expr.value);
+			globals.put((String) expr.token.literal, value);
+
+			return value;
+		}
+
+		if(expr.type == NUM) {
+			return evaluateDouble(expr);
+		}
+
+		Frame target = frame(expr.depth);
+
+		if(unboxed(target, expr.slot, expr.type, expr.value)) {
+			return target.nums[expr.slot];
+		}
+
+		Object value = check(expr.type, evaluate(expr.value), expr.token);
+		target.slots[expr.slot] = value;
+
+		return value;
+	}
+
+	@Override
+	public Object visitAccessNode(Expr.AccessNode expr) {
+		if(expr.depth < 0) {
+			String name = (String) expr.token.literal;
+			Object value = globals.get(name);
+
+			if(value == null && !globals.containsKey(name)) {
+				throw new RTError(expr.token, "Undefined variable '" + name + "'");
+			}
+
+			return value;
+		}
+
+		if(expr.type == NUM) {
+			return frame(expr.depth).nums[expr.slot];
+		}
+
+		return frame(expr.depth).get(expr.slot);
+	}
+
+	@Override
+	public Object visitBinaryOpNode(Expr.BinaryOpNode expr) {
+		TokenType operator = expr.operator.type;
+
+		if(expr.numeric) {
+			if(Resolver.arithmetic(operator)) {
+				return evaluateDouble(expr);
+			}
+
+			if(operator != TYPE && operator != AMPERSAND && operator != EOR) {
+				return condition(expr);
+			}
+		}
+
+		switch(operator) {
+			case AND:
+			case OR:
+				return condition(expr);
+			case TYPE:
+				//a num on the left is checked without boxing it
+				if(producesNum(expr.left)) {
+					evaluateDouble(expr.left);
+
+					return typed(Frame.NUM, evaluate(expr.right), expr.operator);
+				}
+
+				break;
+			default:
+				break;
+		}
+
+		if(specialize) {
+			return specialized(expr);
+		}
+
+		return binary(expr, evaluate(expr.left), evaluate(expr.right));
+	}
+
+	private Object specialized(Expr.BinaryOpNode expr) {
+		switch(expr.state) {
+			case Expr.BinaryOpNode.NUMS: {
+				double left;
+				double right;
+
+				try {
+					left = speculate(expr.left);
+				} catch(Unexpected unexpected) {
+					expr.state = Expr.BinaryOpNode.GENERIC;
+
+					return binary(expr, unexpected.value, evaluate(expr.right));
+				}
+
+				try {
+					right = speculate(expr.right);
+				} catch(Unexpected unexpected) {
+					expr.state = Expr.BinaryOpNode.GENERIC;
+
+					return binary(expr, left, unexpected.value);
+				}
+
+				switch(expr.operator.type) {
+					case LESS:
+						return left < right;
+					case LTE:
+						return left <= right;
+					case GREATER:
+						return left > right;
+					case GTE:
+						return left >= right;
+					case DEQUAL:
+						return left == right;
+					case NOTEQUAL:
+						return left != right;
+					default:
+						return arithmetic(expr.operator, left, right);
+				}
+			}
+			case Expr.BinaryOpNode.STRINGS: {
+				Object left = evaluate(expr.left);
+				Object right = evaluate(expr.right);
+
+				if(left instanceof CharSequence && right instanceof CharSequence) {
+					return Rope.concat((CharSequence) left, (CharSequence) right);
+				}
+
+				expr.state = Expr.BinaryOpNode.GENERIC;
+
+				return binary(expr, left, right);
+			}
+			case Expr.BinaryOpNode.UNINITIALIZED: {
+				Object left = evaluate(expr.left);
+				Object right = evaluate(expr.right);
+				TokenType operator = expr.operator.type;
+
+				if(left instanceof Double && right instanceof Double && (Resolver.arithmetic(operator) || comparison(operator))) {
+					expr.state = Expr.BinaryOpNode.NUMS;
+				} else if(left instanceof CharSequence && right instanceof CharSequence && operator == PLUS) {
+					expr.state = Expr.BinaryOpNode.STRINGS;
+				} else {
+					expr.state = Expr.BinaryOpNode.GENERIC;
+				}
+
+				return binary(expr, left, right);
+			}
+			default:
+				return binary(expr, evaluate(expr.left), evaluate(expr.right));
+		}
+	}
+
+	//evaluates an operand that has been nums so far without boxing it
+	private double speculate(Expr expr) {
+		if(Resolver.numeric(expr)) {
+			return evaluateDouble(expr);
+		}
+
+		if(expr instanceof Expr.BinaryOpNode) {
+			Expr.BinaryOpNode binary = (Expr.BinaryOpNode) expr;
+
+			if(binary.state == Expr.BinaryOpNode.NUMS && Resolver.arithmetic(binary.operator.type)) {
+				double left;
+				double right;
+
+				try {
+					left = speculate(binary.left);
+				} catch(Unexpected unexpected) {
+					binary.state = Expr.BinaryOpNode.GENERIC;
+
+					return unbox(binary(binary, unexpected.value, evaluate(binary.right)));
+				}
+
+				try {
+					right = speculate(binary.right);
+				} catch(Unexpected unexpected) {
+					binary.state = Expr.BinaryOpNode.GENERIC;
+
+					return unbox(binary(binary, left, unexpected.value));
+				}
+
+				return arithmetic(binary.operator, left, right);
+			}
+		}
+
+		return unbox(evaluate(expr));
+	}
+
+	private static double unbox(Object value) {
+		if(value instanceof Double) {
+			return (Double) value;
+		}
+
+		throw new Unexpected(value);
+	}
+
+	private static double arithmetic(Token operator, double left, double right) {
+		switch(operator.type) {
+			case PLUS:
+				return left + right;
+			case MINUS:
+				return left - right;
+			case MUL:
+				return left * right;
+			case DIV:
+				return divide(left, right, operator);
+			default:
+				return modulo(left, right, operator);
+		}
+	}
+
+	private static boolean comparison(TokenType type) {
+		return type == LESS || type == LTE || type == GREATER || type == GTE || type == DEQUAL || type == NOTEQUAL;
+	}
+
+	private Object binary(Expr.BinaryOpNode expr, Object left, Object right) {
+		TokenType operator = expr.operator.type;
+
+		switch(operator) {
+			case PLUS:
+				if(left instanceof Double && right instanceof Double) {
+					return (Double) left + (Double) right;
+				}
+
+				if(left instanceof CharSequence || right instanceof CharSequence) {
+					return concat(left, right);
+				}
+
+				if(left instanceof InafList && right instanceof InafList) {
+					return ((InafList) left).concat((InafList) right);
+				}
+
+				throw new RTError(expr.operator, "Operands of '+' must be nums, strings or lists");
+			case MINUS:
+				return number(left, expr.operator) - number(right, expr.operator);
+			case MUL:
+				return number(left, expr.operator) * number(right, expr.operator);
+			case DIV:
+				return divide(number(left, expr.operator), number(right, expr.operator), expr.operator);
+			case MOD:
+				return modulo(number(left, expr.operator), number(right, expr.operator), expr.operator);
+			case GREATER:
+			case GTE:
+			case LESS:
+			case LTE:
+				if(left instanceof Double && right instanceof Double) {
+					return compare(operator, (Double) left, (Double) right);
+				}
+
+				return compare(operator, strings(left, right, expr.operator), 0);
+			case DEQUAL:
+				return equal(left, right);
+			case NOTEQUAL:
+				return !equal(left, right);
+			case AMPERSAND:
+				if(left instanceof java.lang.Boolean && right instanceof java.lang.Boolean) {
+					return (java.lang.Boolean) left & (java.lang.Boolean) right;
+				}
+
+				return (double) ((long) number(left, expr.operator) & (long) number(right, expr.operator));
+			case EOR:
+				if(left instanceof java.lang.Boolean && right instanceof java.lang.Boolean) {
+					return (java.lang.Boolean) left | (java.lang.Boolean) right;
+				}
+
+				return (double) ((long) number(left, expr.operator) | (long) number(right, expr.operator));
+			case TYPE:
+				return typed(left, right, expr.operator);
+			default:
+				throw new RTError(expr.operator, "Unknown operator");
+		}
+	}
+
+	private static boolean typed(Object value, Object type, Token operator) {
+		java.lang.Boolean result = type(value, type);
+
+		if(result == null) {
+			throw new RTError(operator, "Right operand of 'type' must be a type");
+		}
+
+		return result;
+	}
+
+	//the order of two strings, nums never get here
+	private static int strings(Object left, Object right, Token operator) {
+		if(left instanceof CharSequence && right instanceof CharSequence) {
+			return left.toString().compareTo(right.toString());
+		}
+
+		throw new RTError(operator, "Operands must be two nums or two strings");
+	}
+
+	//null when the right operand is not a type at all
+	static java.lang.Boolean type(Object value, Object type) {
+		if(type instanceof TokenType) {
+			switch((TokenType) type) {
+				case VAR:
+					return true;
+				case NUM:
+					//the vm asks with Frame.NUM for a num it keeps unboxed
+					return value instanceof Double || value == Frame.NUM;
+				case STRING:
+					return value instanceof CharSequence;
+				case CHAR:
+					return value instanceof CharSequence && ((CharSequence) value).length() == 1;
+				case BOOLEAN:
+					return value instanceof java.lang.Boolean;
+				default:
+					return false;
+			}
+		}
+
+		if(type instanceof InafClass) {
+			return value instanceof InafInstance && ((InafInstance) value).klass.isSubclassOf((InafClass) type);
+		}
+
+		if(type instanceof InafEnum) {
+			return value instanceof InafEnum.Value && ((InafEnum.Value) value).owner == type;
+		}
+
+		return null;
+	}
+
+	@Override
+	public Object visitUnaryOpNode(Expr.UnaryOpNode expr) {
+		switch(expr.operator.type) {
+			case MINUS:
+				if(expr.numeric) {
+					return -evaluateDouble(expr.node);
+				}
+
+				return -number(evaluate(expr.node), expr.operator);
+			case NOT:
+				return !condition(expr.node);
+			default:
+				return evaluate(expr.node);
+		}
+	}
+
+	@Override
+	public Object visitCallNode(Expr.CallNode expr) {
+		return call(expr, false);
+	}
+
+	private Object call(Expr.CallNode expr, boolean tail) {
+		//obj.method(...) finds the method through the site's cache and never builds a bound method
+		if(expr.callee instanceof Expr.GetNode) {
+			Expr.GetNode get = (Expr.GetNode) expr.callee;
+			Object object = evaluate(get.object);
+
+			if(object instanceof InafInstance) {
+				InafInstance instance = (InafInstance) object;
+				Object field = get.cache.field(instance, (String) get.token.literal);
+
+				if(field == InafInstance.MISSING) {
+					return call(method(instance, get), instance, expr, tail);
+				}
+
+				return call(field, expr, tail);
+			}
+
+			return call(property(object, get), expr, tail);
+		}
+
+		return call(evaluate(expr.callee), expr, tail);
+	}
+
+	private Object call(Object callee, Expr.CallNode expr, boolean tail) {
+		if(callee instanceof InafMethod) {
+			InafMethod method = (InafMethod) callee;
+
+			return call(method, method.self, expr, tail);
+		}
+
+		if(!(callee instanceof InafCallable)) {
+			throw new RTError(expr.lparen, "Can only call methods and classes");
+		}
+
+		InafCallable callable = (InafCallable) callee;
+		arity(callable, expr);
+
+		List<Object> arguments = new ArrayList<>(expr.arguments.size());
+
+		for(Expr argument : expr.arguments) {
+			arguments.add(evaluate(argument));
+		}
+
+		return callable.call(this, arguments);
+	}
+
+	private Object call(InafMethod method, InafInstance self, Expr.CallNode expr, boolean tail) {
+		arity(method, expr);
+
+		//num parameters are filled straight from the unboxed path
+		Frame callFrame = method.frame(self);
+
+		for(int i = 0; i < expr.arguments.size(); i++) {
+			TokenType type = method.types.get(i);
+			Expr argument = expr.arguments.get(i);
+
+			if(type == NUM) {
+				callFrame.nums[i] = evaluateDouble(argument);
+			} else if(!unboxed(callFrame, i, type, argument)) {
+				callFrame.slots[i] = check(type, evaluate(argument), method.parametters.get(i));
+			}
+		}
+
+		//a hot method compiled by the Jit returns its num directly, a deopt falls back to evaluating the same frame
+		if(method.declaration != null) {
+			Jit.Code compiled = Tier.method(method.declaration);
+
+			if(compiled != null) {
+				try {
+					return compiled.run(callFrame);
+				} catch(Jit.Deopt deopt) {
+					Tier.deopt(method.declaration.tier);
+				} catch(StackOverflowError error) {
+					overflow = expr.rparen;
+
+					throw OVERFLOW;
+				}
+			}
+		}
+
+		if(tail && !method.init) {
+			tailFrame = callFrame;
+			tailBody = method.body;
+
+			throw TAIL;
+		}
+
+		Object result;
+
+		try {
+			result = invoke(callFrame, method.body);
+		} catch(StackOverflowError error) {
+			overflow = expr.rparen;
+
+			throw OVERFLOW;
+		}
+
+		if(method.init) {
+			return self;
+		}
+
+		return result;
+	}
+
+	private static void arity(InafCallable callable, Expr.CallNode expr) {
+		if(callable.arity() >= 0 && callable.arity() != expr.arguments.size()) {
+			throw new RTError(expr.rparen, "Expected " + callable.arity() + " arguments but got " + expr.arguments.size());
+		}
+	}
+
+	@Override
+	public Object visitGetNode(Expr.GetNode expr) {
+		return property(evaluate(expr.object), expr);
+	}
+
+	private static Object property(Object object, Expr.GetNode expr) {
+		if(object instanceof InafInstance) {
+			InafInstance instance = (InafInstance) object;
+			Object field = expr.cache.field(instance, (String) expr.token.literal);
+
+			if(field == InafInstance.MISSING) {
+				return method(instance, expr).bind(instance);
+			}
+
+			return field;
+		}
+
+		if(object instanceof InafEnum) {
+			return ((InafEnum) object).get(expr.token);
+		}
+
+		throw new RTError(expr.token, "Only instances have properties");
+	}
+
+	private static InafMethod method(InafInstance instance, Expr.GetNode expr) {
+		InafMethod method = expr.cache.method(instance, (String) expr.token.literal);
+
+		if(method == null) {
+			throw new RTError(expr.token, "Undefined property '" + expr.token.literal + "'");
+		}
+
+		return method;
+	}
+
+	@Override
+	public Object visitSetNode(Expr.SetNode expr) {
+		Object object = evaluate(expr.object);
+
+		if(!(object instanceof InafInstance)) {
+			throw new RTError(expr.token, "Only instances have fields");
+		}
+
+		if(expr.update != null) {
+			Object old = property(object, (Expr.GetNode) expr.update.left);
+			Object value = binary(expr.update, old, evaluate(expr.value));
+			expr.cache.set((InafInstance) object, (String) expr.token.literal, value);
+
+			return expr.postfix ? old : value;
+		}
+
+		Object value = evaluate(expr.value);
+		expr.cache.set((InafInstance) object, (String) expr.token.literal, value);
+
+		return value;
+	}
+
+	@Override
+	public Object visitThisNode(Expr.ThisNode expr) {
+		Frame target = methodFrame();
+
+		if(target == null) {
+			throw new RTError(expr.keyword, "Cannot use 'this' outside of a class");
+		}
+
+		return target.self;
+	}
+
+	@Override
+	public Object visitSuperNode(Expr.SuperNode expr) {
+		Frame target = methodFrame();
+
+		if(target == null || target.holder == null) {
+			throw new RTError(expr.keyword, "Cannot use 'super' outside of a class");
+		}
+
+		if(expr.method == null) {
+			//super(...) runs the constructor of the first super class
+			if(target.holder.supers.isEmpty()) {
+				throw new RTError(expr.keyword, "Class '" + target.holder.name + "' has no super class");
+			}
+
+			InafMethod init = target.holder.supers.get(0).findInit();
+
+			if(init == null) {
+				return new InafCallable() {
+					@Override
+					public int arity() {
+						return 0;
+					}
+
+					@Override
+					public Object call(Interpreter interpreter, List<Object> arguments) {
+						return null;
+					}
+				};
+			}
+
+			return init.bind(target.self);
+		}
+
+		InafMethod method = target.holder.findSuper((String) expr.method.literal);
+
+		if(method != null) {
+			return method.bind(target.self);
+		}
+
+		throw new RTError(expr.method, "Undefined super method '" + expr.method.literal + "'");
+	}
+
+	@Override
+	public Void visitBlockStmt(Stmt.Block stmt) {
+		execute(stmt.statements);
+
+		return null;
+	}
+
+	@Override
+	public Void visitExpressionStmt(Stmt.Expression stmt) {
+		discard(stmt.expression);
+
+		return null;
+	}
+
+	@Override
+	public Void visitVarStmt(Stmt.Var stmt) {
+		declare(stmt.slot, VAR, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitConstStmt(Stmt.Const stmt) {
+		declare(stmt.slot, CONST, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitStringStmt(Stmt.String stmt) {
+		declare(stmt.slot, STRING, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitNumStmt(Stmt.Num stmt) {
+		declare(stmt.slot, NUM, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitCharStmt(Stmt.Char stmt) {
+		declare(stmt.slot, CHAR, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitBooleanStmt(Stmt.Boolean stmt) {
+		declare(stmt.slot, BOOLEAN, stmt.name, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitIfStmt(Stmt.If stmt) {
+		if(condition(stmt.condition)) {
+			execute(stmt.thenBranch);
+		} else if(stmt.elseBranch != null) {
+			execute(stmt.elseBranch);
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitForStmt(Stmt.For stmt) {
+		if(stmt.initializer != null) {
+			execute(stmt.initializer);
+		}
+
+		hoist(stmt.invariants);
+
+		if(stmt.counter >= 0) {
+			counted(stmt);
+
+			return null;
+		}
+
+		try {
+			while(stmt.condition == null || condition(stmt.condition)) {
+				try {
+					execute(stmt.body);
+				} catch(Signal signal) {
+					if(signal != CONTINUE) {
+						throw signal;
+					}
+				}
+
+				if(stmt.increment != null) {
+					discard(stmt.increment);
+				}
+
+				if(osr(stmt, stmt.tier)) {
+					break;
+				}
+			}
+		} catch(Signal signal) {
+			if(signal != BREAK) {
+				throw signal;
+			}
+		}
+
+		return null;
+	}
+
+	//the counter lives in its frame slot, so the body and anything it calls see every update
+	private void counted(Stmt.For stmt) {
+		Expr.BinaryOpNode test = (Expr.BinaryOpNode) stmt.condition;
+		TokenType compare = test.operator.type;
+		double limit = evaluateDouble(test.right);
+		double[] nums = frame.nums;
+		int counter = stmt.counter;
+		double step = stmt.step;
+
+		try {
+			while(compare == LESS ? nums[counter] < limit : compare == LTE ? nums[counter] <= limit : compare == GREATER ? nums[counter] > limit : nums[counter] >= limit) {
+				try {
+					execute(stmt.body);
+				} catch(Signal signal) {
+					if(signal != CONTINUE) {
+						throw signal;
+					}
+				}
+
+				nums[counter] += step;
+
+				if(osr(stmt, stmt.tier)) {
+					break;
+				}
+			}
+		} catch(Signal signal) {
+			if(signal != BREAK) {
+				throw signal;
+			}
+		}
+	}
+
+	//counts a back edge and runs the rest of the loop compiled once it is hot, false when the loop goes on here
+	//a deopt leaves the frame as it was at the compiled loop's last back edge, which is where the interpreter picks up
+	private boolean osr(Stmt loop, Tier.Counter counter) {
+		Jit.Code compiled = Tier.loop(loop, counter, frame);
+
+		if(compiled == null) {
+			return false;
+		}
+
+		try {
+			compiled.run(frame);
+
+			return true;
+		} catch(Jit.Deopt deopt) {
+			Tier.deopt(counter);
+
+			return false;
+		}
+	}
+
+	//computes what the Resolver moved out of a loop, the expressions themselves read the slots from then on
+	private void hoist(List<Expr> invariants) {
+		for(Expr invariant : invariants) {
+			if(invariant instanceof Expr.BinaryOpNode) {
+				Expr.BinaryOpNode binary = (Expr.BinaryOpNode) invariant;
+				frame.nums[binary.hoisted] = arithmetic(binary.operator, evaluateDouble(binary.left), evaluateDouble(binary.right));
+			} else {
+				Expr.UnaryOpNode unary = (Expr.UnaryOpNode) invariant;
+				frame.nums[unary.hoisted] = -evaluateDouble(unary.node);
+			}
+		}
+	}
+
+	@Override
+	public Void visitWhileStmt(Stmt.While stmt) {
+		hoist(stmt.invariants);
+
+		try {
+			while(condition(stmt.condition)) {
+				try {
+					execute(stmt.body);
+				} catch(Signal signal) {
+					if(signal != CONTINUE) {
+						throw signal;
+					}
+				}
+
+				if(osr(stmt, stmt.tier)) {
+					break;
+				}
+			}
+		} catch(Signal signal) {
+			if(signal != BREAK) {
+				throw signal;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitDoStmt(Stmt.Do stmt) {
+		hoist(stmt.invariants);
+
+		try {
+			do {
+				try {
+					execute(stmt.body);
+				} catch(Signal signal) {
+					if(signal != CONTINUE) {
+						throw signal;
+					}
+				}
+			} while(stmt.condition != null && condition(stmt.condition) && !osr(stmt, stmt.tier));
+		} catch(Signal signal) {
+			if(signal != BREAK) {
+				throw signal;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitSwitchStmt(Stmt.Switch stmt) {
+		int label = Resolver.numeric(stmt.value) ? stmt.dispatch.target(evaluateDouble(stmt.value)) : stmt.dispatch.target(evaluate(stmt.value));
+		List<Stmt> body = stmt.body;
+
+		try {
+			for(int i = stmt.entry(label); i < body.size(); i++) {
+				body.get(i).accept(this);
+			}
+		} catch(Signal signal) {
+			if(signal != BREAK) {
+				throw signal;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitMethodStmt(Stmt.Method stmt) {
+		store(stmt.slot, new InafMethod(stmt, frame, null));
+
+		return null;
+	}
+
+	@Override
+	public Void visitInitStmt(Stmt.Init stmt) {
+		return null;
+	}
+
+	@Override
+	public Void visitClassStmt(Stmt.Class stmt) {
+		List<InafClass> supers = new ArrayList<>();
+
+		for(Expr.AccessNode supClass : stmt.supClass) {
+			Object value = evaluate(supClass);
+
+			if(!(value instanceof InafClass)) {
+				throw new RTError(supClass.token, "Super class must be a class");
+			}
+
+			supers.add((InafClass) value);
+		}
+
+		InafClass klass = new InafClass((String) stmt.name.literal, supers);
+
+		if(klass.order == null) {
+			throw new RTError(stmt.name, "Cannot order the super classes of '" + stmt.name.literal + "' consistently");
+		}
+
+		if(stmt.constructor != null) {
+			klass.init = new InafMethod(stmt.constructor, frame, klass);
+		}
+
+		for(Stmt.Method method : stmt.methods) {
+			klass.define((String) method.name.literal, new InafMethod(method, frame, klass));
+		}
+
+		store(stmt.slot, klass);
+
+		return null;
+	}
+
+	@Override
+	public Void visitEnumStmt(Stmt.Enum stmt) {
+		InafEnum enumType = new InafEnum(stmt);
+
+		for(int i = 0; i < stmt.enumValue.size(); i++) {
+			InafEnum.Value value = enumType.add((String) stmt.enumValue.get(i).literal);
+
+			if(stmt.name == null) {
+				store(stmt.slot + i, value);
+			}
+		}
+
+		if(stmt.name != null) {
+			store(stmt.slot, enumType);
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitReturnStmt(Stmt.Return stmt) {
+		//only a method frame has an enclosing frame, the top level has no caller to return into
+		if(stmt.value.size() == 1 && stmt.value.get(0) instanceof Expr.CallNode && frame.enclosing != null) {
+			returnValue = call((Expr.CallNode) stmt.value.get(0), true);
+		} else if(stmt.value.size() == 1) {
+			returnValue = evaluate(stmt.value.get(0));
+		} else if(stmt.value.size() > 1) {
+			InafList.Builder values = new InafList.Builder(stmt.value.size());
+
+			for(Expr value : stmt.value) {
+				values.add(evaluate(value));
+			}
+
+			returnValue = values.build();
+		}
+
+		throw RETURN;
+	}
+
+	@Override
+	public Void visitContinueStmt(Stmt.Continue stmt) {
+		throw CONTINUE;
+	}
+
+	@Override
+	public Void visitBreakStmt(Stmt.Break stmt) {
+		throw BREAK;
+	}
+
+	@Override
+	public Void visitPrintStmt(Stmt.Print stmt) {
+		if(Resolver.numeric(stmt.expression)) {
+			System.out.println(stringify(evaluateDouble(stmt.expression)));
+		} else {
+			System.out.println(stringify(evaluate(stmt.expression)));
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitInputStmt(Stmt.Input stmt) {
+		if(stmt.expression != null) {
+			System.out.print(stringify(evaluate(stmt.expression)));
+		}
+
+		try {
+			input.readLine();
+		} catch(IOException exception) {
+			throw new RTError(new Token(INPUT, null, stmt.start, stmt.end), "Cannot read input");
+		}
+
+		return null;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,655 @@
+package inaf;
+
+import static inaf.ClassFile.*;
+import static inaf.TokenType.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+//compiles hot methods and loops that only compute on nums into hidden JVM classes and leaves the rest to the JVM's own compilers
+//code takes this tier only when every node in it is understood, anything else stays interpreted, see Tier for when it is asked
+final class Jit {
+	private static final String NAME = "inaf/JitCode";
+	private static final String BODY = "body";
+
+	//a method returns its num, a loop writes its locals back to the frame and returns 0 once it exits
+	interface Code {
+		double run(Frame frame);
+	}
+
+	//thrown by compiled code instead of producing what it cannot represent, a none result or a division by zero
+	//compiled bodies never have side effects so the caller simply runs the same call again in the evaluator
+	//a loop has stored its locals at its last back edge, so the interpreter resumes from there
+	static final class Deopt extends RuntimeException {
+		private Deopt() {
+			super(null, null, false, false);
+		}
+	}
+
+	static final Deopt DEOPT = new Deopt();
+
+	private static final class Unsupported extends RuntimeException {
+		private Unsupported() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final Unsupported UNSUPPORTED = new Unsupported();
+	private static final Expr ZERO = new Expr.NumberNode(new Token(NUMBER, 0.0, null, null));
+
+	//exactly one of method and loop is set
+	private final Stmt.Method method;
+	private final Stmt loop;
+	private final int frameSize;
+	//the jvm local of slot 0, a loop keeps this and the frame below its slots
+	private final int base;
+	private final ClassFile file = new ClassFile(NAME, "java/lang/Object", "inaf/Jit$Code");
+	private final String descriptor;
+	private final int body;
+	private final int deopt;
+	private final Deque<Label> breaks = new ArrayDeque<>();
+	private final Deque<Label> continues = new ArrayDeque<>();
+	//the slots a loop touches with their declared types, the ones declared inside it never reach the frame
+	private final Map<Integer, TokenType> slots = new TreeMap<>();
+	private final Set<Integer> written = new TreeSet<>();
+	private final Set<Integer> declared = new HashSet<>();
+	private ClassFile.Code code;
+	private Label entry;
+
+	private Jit(Stmt.Method method) {
+		this.method = method;
+		this.loop = null;
+		this.frameSize = Math.max(method.frameSize, method.parametters.size());
+		this.base = 0;
+		this.descriptor = "(" + "D".repeat(method.parametters.size()) + ")D";
+		this.body = file.methodConstant(NAME, BODY, descriptor);
+		this.deopt = file.fieldConstant("inaf/Jit", "DEOPT", "Linaf/Jit$Deopt;");
+	}
+
+	private Jit(Stmt loop, int frameSize) {
+		this.method = null;
+		this.loop = loop;
+		this.frameSize = frameSize;
+		this.base = 2;
+		this.descriptor = null;
+		this.body = -1;
+		this.deopt = file.fieldConstant("inaf/Jit", "DEOPT", "Linaf/Jit$Deopt;");
+	}
+
+	//null when the method cannot be compiled
+	static Code compile(Stmt.Method method) {
+		for(TokenType type : method.types) {
+			if(type != NUM && type != VAR) {
+				return null;
+			}
+		}
+
+		return define(new Jit(method));
+	}
+
+	//a For, While or Do entered at its back edge, running in frames of frameSize slots
+	static Code compile(Stmt loop, int frameSize) {
+		return define(new Jit(loop, frameSize));
+	}
+
+	private static Code define(Jit jit) {
+		try {
+			byte[] bytes = jit.method != null ? jit.generate() : jit.osr();
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+
+			return (Code) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+		} catch(Throwable e) {
+			//unsupported nodes, oversized methods and anything the jvm refuses all keep the code interpreted
+			return null;
+		}
+	}
+
+	private void constructor() {
+		ClassFile.Code init = file.method(PUBLIC, "<init>", "()V", 1);
+
+		init.op(ALOAD_0, 1);
+		init.member(INVOKESPECIAL, file.methodConstant("java/lang/Object", "<init>", "()V"), -1);
+		init.op(ClassFile.RETURN, 0);
+		init.finish();
+	}
+
+	private byte[] generate() {
+		int parametters = method.parametters.size();
+
+		constructor();
+
+		//the entry reads the bound frame, a var parametter that does not hold a num fails the guard before any work is done
+		ClassFile.Code run = file.method(PUBLIC, "run", "(Linaf/Frame;)D", 2);
+
+		for(int i = 0; i < parametters; i++) {
+			read(run, i, method.types.get(i));
+		}
+
+		run.member(INVOKESTATIC, body, 2 - 2 * parametters);
+		run.op(DRETURN, -2);
+		run.finish();
+
+		//every slot of a compiled method holds a num whatever it was declared as, a double takes two jvm locals
+		code = file.method(STATIC, BODY, descriptor, 2 * frameSize);
+
+		for(int slot = parametters; slot < method.frameSize; slot++) {
+			code.op(DCONST_0, 2);
+			code.local(DSTORE, 2 * slot, -2);
+		}
+
+		entry = new Label();
+		code.bind(entry);
+		statements(method.body);
+
+		//falling off the end returns none
+		code.member(GETSTATIC, deopt, 1);
+		code.op(ATHROW, -1);
+		code.finish();
+
+		return file.toBytes();
+	}
+
+	//the loop starts where the interpreter counts its back edge, before the condition of a For or While and before the body of a Do
+	//which slots to load and store is only known once the loop is emitted, so that code comes last and the entry jumps over the loop
+	private byte[] osr() {
+		Label prologue = new Label();
+		Label exit = new Label();
+		Label sync = new Label();
+
+		constructor();
+		code = file.method(PUBLIC, "run", "(Linaf/Frame;)D", base + 2 * frameSize);
+		code.jump(GOTO, prologue, 0);
+		entry = new Label();
+		code.bind(entry);
+
+		if(loop instanceof Stmt.While) {
+			Stmt.While whileStmt = (Stmt.While) loop;
+
+			branch(whileStmt.condition, exit, false);
+			loop(whileStmt.body, exit, sync);
+		} else if(loop instanceof Stmt.For) {
+			Stmt.For forStmt = (Stmt.For) loop;
+			Label next = new Label();
+
+			if(forStmt.condition != null) {
+				branch(forStmt.condition, exit, false);
+			}
+
+			loop(forStmt.body, exit, next);
+			code.bind(next);
+
+			if(forStmt.increment != null) {
+				effect(forStmt.increment);
+			}
+		} else {
+			Stmt.Do doStmt = (Stmt.Do) loop;
+			Label next = new Label();
+
+			if(doStmt.condition == null) {
+				throw UNSUPPORTED;
+			}
+
+			loop(doStmt.body, exit, next);
+			code.bind(next);
+			branch(doStmt.condition, sync, true);
+			code.jump(GOTO, exit, 0);
+		}
+
+		//the outer back edge is the only point where the frame is brought up to date
+		code.bind(sync);
+		store();
+		code.jump(GOTO, entry, 0);
+
+		code.bind(exit);
+		store();
+		code.op(DCONST_0, 2);
+		code.op(DRETURN, -2);
+
+		code.bind(prologue);
+
+		for(Map.Entry<Integer, TokenType> slot : slots.entrySet()) {
+			if(declared.contains(slot.getKey())) {
+				code.op(DCONST_0, 2);
+			} else {
+				read(code, slot.getKey(), slot.getValue());
+			}
+
+			code.local(DSTORE, base + 2 * slot.getKey(), -2);
+		}
+
+		code.jump(GOTO, entry, 0);
+		code.finish();
+
+		return file.toBytes();
+	}
+
+	//pushes a slot of the frame in local 1 as a double, a reference slot that does not hold a num deopts
+	private void read(ClassFile.Code target, int slot, TokenType type) {
+		target.op(ALOAD_1, 1);
+
+		if(type == NUM) {
+			target.member(GETFIELD, file.fieldConstant("inaf/Frame", "nums", "[D"), 0);
+			target.integer(slot);
+			target.op(DALOAD, 0);
+		} else {
+			target.integer(slot);
+			target.member(INVOKESTATIC, file.methodConstant("inaf/Jit", "num", "(Linaf/Frame;I)D"), 0);
+		}
+	}
+
+	//the num in a reference slot, unboxed behind Frame.NUM or boxed, compiled code deopts on anything else
+	static double num(Frame frame, int slot) {
+		Object value = frame.slots[slot];
+
+		if(value == Frame.NUM) {
+			return frame.nums[slot];
+		}
+
+		if(value instanceof Double) {
+			return (Double) value;
+		}
+
+		throw DEOPT;
+	}
+
+	//writes every frame slot the loop assigned back from its jvm local
+	private void store() {
+		for(int slot : written) {
+			if(declared.contains(slot)) {
+				continue;
+			}
+
+			//a var keeps its num unboxed behind Frame.NUM, so nothing is allocated here
+			if(slots.get(slot) != NUM) {
+				code.op(ALOAD_1, 1);
+				code.member(GETFIELD, file.fieldConstant("inaf/Frame", "slots", "[Ljava/lang/Object;"), 0);
+				code.integer(slot);
+				code.member(GETSTATIC, file.fieldConstant("inaf/Frame", "NUM", "Ljava/lang/Object;"), 1);
+				code.op(AASTORE, -3);
+			}
+
+			code.op(ALOAD_1, 1);
+			code.member(GETFIELD, file.fieldConstant("inaf/Frame", "nums", "[D"), 0);
+			code.integer(slot);
+			code.local(DLOAD, base + 2 * slot, 2);
+			code.op(DASTORE, -4);
+		}
+	}
+
+	private void statements(List<Stmt> statements) {
+		for(Stmt statement : statements) {
+			statement(statement);
+		}
+	}
+
+	private void statement(Stmt stmt) {
+		if(stmt instanceof Stmt.Num) {
+			Stmt.Num num = (Stmt.Num) stmt;
+
+			declare(num.slot, num.initializer == null ? ZERO : num.initializer);
+		} else if(stmt instanceof Stmt.Var) {
+			Stmt.Var var = (Stmt.Var) stmt;
+
+			declare(var.slot, var.initializer);
+		} else if(stmt instanceof Stmt.Const) {
+			Stmt.Const constant = (Stmt.Const) stmt;
+
+			declare(constant.slot, constant.initializer);
+		} else if(stmt instanceof Stmt.Expression) {
+			effect(((Stmt.Expression) stmt).expression);
+		} else if(stmt instanceof Stmt.Block) {
+			statements(((Stmt.Block) stmt).statements);
+		} else if(stmt instanceof Stmt.If) {
+			Stmt.If branch = (Stmt.If) stmt;
+			Label otherwise = new Label();
+
+			branch(branch.condition, otherwise, false);
+			statements(branch.thenBranch);
+
+			if(branch.elseBranch != null) {
+				Label end = new Label();
+
+				code.jump(GOTO, end, 0);
+				code.bind(otherwise);
+				statements(branch.elseBranch);
+				code.bind(end);
+			} else {
+				code.bind(otherwise);
+			}
+		} else if(stmt instanceof Stmt.While) {
+			Stmt.While loop = (Stmt.While) stmt;
+			Label start = new Label();
+			Label exit = new Label();
+
+			code.bind(start);
+			branch(loop.condition, exit, false);
+			loop(loop.body, exit, start);
+			code.jump(GOTO, start, 0);
+			code.bind(exit);
+		} else if(stmt instanceof Stmt.For) {
+			Stmt.For loop = (Stmt.For) stmt;
+			Label start = new Label();
+			Label next = new Label();
+			Label exit = new Label();
+
+			if(loop.initializer != null) {
+				statement(loop.initializer);
+			}
+
+			code.bind(start);
+
+			if(loop.condition != null) {
+				branch(loop.condition, exit, false);
+			}
+
+			loop(loop.body, exit, next);
+			code.bind(next);
+
+			if(loop.increment != null) {
+				effect(loop.increment);
+			}
+
+			code.jump(GOTO, start, 0);
+			code.bind(exit);
+		} else if(stmt instanceof Stmt.Do) {
+			Stmt.Do loop = (Stmt.Do) stmt;
+			Label start = new Label();
+			Label next = new Label();
+			Label exit = new Label();
+
+			code.bind(start);
+			loop(loop.body, exit, next);
+			code.bind(next);
+
+			if(loop.condition != null) {
+				branch(loop.condition, start, true);
+			}
+
+			code.bind(exit);
+		} else if(stmt instanceof Stmt.Return) {
+			ret((Stmt.Return) stmt);
+		} else if(stmt instanceof Stmt.Break && !breaks.isEmpty()) {
+			code.jump(GOTO, breaks.peek(), 0);
+		} else if(stmt instanceof Stmt.Continue && !continues.isEmpty()) {
+			code.jump(GOTO, continues.peek(), 0);
+		} else {
+			throw UNSUPPORTED;
+		}
+	}
+
+	//a var without an initializer holds none, which compiled code cannot represent
+	private void declare(int slot, Expr initializer) {
+		if(slot < 0 || initializer == null) {
+			throw UNSUPPORTED;
+		}
+
+		declared.add(slot);
+		value(initializer);
+		code.local(DSTORE, local(0, slot, NUM, true), -2);
+	}
+
+	private void loop(List<Stmt> body, Label exit, Label next) {
+		breaks.push(exit);
+		continues.push(next);
+		statements(body);
+		continues.pop();
+		breaks.pop();
+	}
+
+	//a compiled loop cannot return on behalf of the code around it
+	private void ret(Stmt.Return stmt) {
+		if(method == null || stmt.value.size() != 1) {
+			throw UNSUPPORTED;
+		}
+
+		Expr value = stmt.value.get(0);
+
+		//a self call in tail position rebinds the parametters and jumps back instead of growing the jvm stack
+		if(recursive(value)) {
+			List<Expr> arguments = ((Expr.CallNode) value).arguments;
+
+			for(Expr argument : arguments) {
+				value(argument);
+			}
+
+			for(int i = arguments.size() - 1; i >= 0; i--) {
+				code.local(DSTORE, 2 * i, -2);
+			}
+
+			code.jump(GOTO, entry, 0);
+
+			return;
+		}
+
+		value(value);
+		code.op(DRETURN, -2);
+	}
+
+	private void effect(Expr expr) {
+		if(expr instanceof Expr.AssignNode) {
+			Expr.AssignNode assign = (Expr.AssignNode) expr;
+
+			value(assign.value);
+			code.local(DSTORE, local(assign.depth, assign.slot, assign.type, true), -2);
+		} else {
+			value(expr);
+			code.op(POP2, -2);
+		}
+	}
+
+	private void value(Expr expr) {
+		if(expr instanceof Expr.NumberNode) {
+			code.constant(((Expr.NumberNode) expr).value);
+		} else if(expr instanceof Expr.AccessNode) {
+			Expr.AccessNode access = (Expr.AccessNode) expr;
+
+			code.local(DLOAD, local(access.depth, access.slot, access.type, false), 2);
+		} else if(expr instanceof Expr.AssignNode) {
+			Expr.AssignNode assign = (Expr.AssignNode) expr;
+
+			if(assign.postfix) {
+				code.local(DLOAD, local(assign.depth, assign.slot, assign.type, false), 2);
+			}
+
+			value(assign.value);
+
+			if(!assign.postfix) {
+				code.op(DUP2, 2);
+			}
+
+			code.local(DSTORE, local(assign.depth, assign.slot, assign.type, true), -2);
+		} else if(expr instanceof Expr.BinaryOpNode) {
+			arithmetic((Expr.BinaryOpNode) expr);
+		} else if(expr instanceof Expr.UnaryOpNode && ((Expr.UnaryOpNode) expr).operator.type == MINUS) {
+			value(((Expr.UnaryOpNode) expr).node);
+			code.op(DNEG, 0);
+		} else if(recursive(expr)) {
+			List<Expr> arguments = ((Expr.CallNode) expr).arguments;
+
+			for(Expr argument : arguments) {
+				value(argument);
+			}
+
+			code.member(INVOKESTATIC, body, 2 - 2 * arguments.size());
+		} else {
+			throw UNSUPPORTED;
+		}
+	}
+
+	private int local(int depth, int slot, TokenType type, boolean write) {
+		if(depth != 0 || slot < 0 || slot >= frameSize || (type != NUM && type != VAR && type != CONST)) {
+			throw UNSUPPORTED;
+		}
+
+		slots.putIfAbsent(slot, type);
+
+		if(write) {
+			written.add(slot);
+		}
+
+		return base + 2 * slot;
+	}
+
+	//only calls that provably reach this same declaration, a method slot is never reassigned
+	private boolean recursive(Expr expr) {
+		if(method == null || !(expr instanceof Expr.CallNode) || !(((Expr.CallNode) expr).callee instanceof Expr.AccessNode)) {
+			return false;
+		}
+
+		Expr.CallNode call = (Expr.CallNode) expr;
+		Expr.AccessNode callee = (Expr.AccessNode) call.callee;
+
+		return method.slot >= 0 && callee.type == METHOD && callee.depth == 1 && callee.slot == method.slot && call.arguments.size() == method.parametters.size();
+	}
+
+	private void arithmetic(Expr.BinaryOpNode expr) {
+		switch(expr.operator.type) {
+			case PLUS:
+				value(expr.left);
+				value(expr.right);
+				code.op(DADD, -2);
+				break;
+			case MINUS:
+				value(expr.left);
+				value(expr.right);
+				code.op(DSUB, -2);
+				break;
+			case MUL:
+				value(expr.left);
+				value(expr.right);
+				code.op(DMUL, -2);
+				break;
+			case DIV:
+				value(expr.left);
+				value(expr.right);
+				nonzero();
+				code.op(DDIV, -2);
+				break;
+			case MOD:
+				value(expr.left);
+				value(expr.right);
+				nonzero();
+				code.op(ACONST_NULL, 1);
+				code.member(INVOKESTATIC, file.methodConstant("inaf/Interpreter", "modulo", "(DDLinaf/Token;)D"), -3);
+				break;
+			default:
+				throw UNSUPPORTED;
+		}
+	}
+
+	//the evaluator reports a division by zero with its position, so the compiled code leaves that to it
+	private void nonzero() {
+		Label ok = new Label();
+
+		code.op(DUP2, 2);
+		code.op(DCONST_0, 2);
+		code.op(DCMPL, -3);
+		code.jump(IFNE, ok, -1);
+		code.member(GETSTATIC, deopt, 1);
+		code.op(ATHROW, -1);
+		code.bind(ok);
+	}
+
+	//jumps to target when the condition is as truthy as when
+	private void branch(Expr expr, Label target, boolean when) {
+		if(expr instanceof Expr.BinaryOpNode) {
+			Expr.BinaryOpNode binary = (Expr.BinaryOpNode) expr;
+
+			switch(binary.operator.type) {
+				case AND:
+				case OR:
+					//jumping on the left operand alone decides the whole condition only one way
+					if(when == (binary.operator.type == OR)) {
+						branch(binary.left, target, when);
+						branch(binary.right, target, when);
+					} else {
+						Label skip = new Label();
+
+						branch(binary.left, skip, !when);
+						branch(binary.right, target, when);
+						code.bind(skip);
+					}
+
+					return;
+				case LESS:
+				case LTE:
+				case GREATER:
+				case GTE:
+				case DEQUAL:
+				case NOTEQUAL:
+					compare(binary, target, when);
+
+					return;
+				default:
+					break;
+			}
+		}
+
+		if(expr instanceof Expr.UnaryOpNode && ((Expr.UnaryOpNode) expr).operator.type == NOT) {
+			branch(((Expr.UnaryOpNode) expr).node, target, !when);
+
+			return;
+		}
+
+		if(expr instanceof Expr.LiteralNode && ((Expr.LiteralNode) expr).value instanceof java.lang.Boolean) {
+			if(((Expr.LiteralNode) expr).value.equals(when)) {
+				code.jump(GOTO, target, 0);
+			}
+
+			return;
+		}
+
+		//a num is truthy when it is not zero, nan included
+		value(expr);
+		code.op(DCONST_0, 2);
+		code.op(DCMPL, -3);
+		code.jump(when ? IFNE : IFEQ, target, -1);
+	}
+
+	private void compare(Expr.BinaryOpNode binary, Label target, boolean when) {
+		TokenType type = binary.operator.type;
+
+		value(binary.left);
+		value(binary.right);
+
+		//IEEE comparisons like the evaluator, nan makes dcmpg and dcmpl answer so that every test but '!=' fails
+		if(type == LESS || type == LTE) {
+			code.op(DCMPG, -3);
+		} else {
+			code.op(DCMPL, -3);
+		}
+
+		int test;
+
+		switch(type) {
+			case LESS:
+				test = when ? IFLT : IFGE;
+				break;
+			case LTE:
+				test = when ? IFLE : IFGT;
+				break;
+			case GREATER:
+				test = when ? IFGT : IFLE;
+				break;
+			case GTE:
+				test = when ? IFGE : IFLT;
+				break;
+			case DEQUAL:
+				test = when ? IFEQ : IFNE;
+				break;
+			default:
+				test = when ? IFNE : IFEQ;
+				break;
+		}
+
+		code.jump(test, target, -1);
+	}
+}
\ No newline at end of file
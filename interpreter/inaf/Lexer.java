@@ -2,68 +2,57 @@ package inaf;
 
 import static inaf.TokenType.*;
 
-import java.util.List;
-import java.util.ArrayList;
-import java.util.Map;
-import java.util.HashMap;
-
 class Lexer {
-	private static final Map<String, TokenType> keywords;
-
-	static {
-		keywords = new HashMap<>();
-		keywords.put("package", PACKAGE);
-		keywords.put("import", IMPORT);
-		keywords.put("class", CLASS);
-		keywords.put("method", METHOD);
-		keywords.put("init", INIT);
-		keywords.put("var", VAR);
-		keywords.put("const", CONST);
-		keywords.put("string", STRING);
-		keywords.put("num", NUM);
-		keywords.put("char", CHAR);
-		keywords.put("boolean", BOOLEAN);
-		keywords.put("true", TRUE);
-		keywords.put("false", FALSE);
-		keywords.put("if", IF);
-		keywords.put("else if", ELIF);
-		keywords.put("elseif", ELIF);
-		keywords.put("elif", ELIF);
-		keywords.put("else", ELSE);
-		keywords.put("for", FOR);
-		keywords.put("while", WHILE);
-		keywords.put("do", DO);
-		keywords.put("switch", SWITCH);
-		keywords.put("case", CASE);
-		keywords.put("return", RETURN);
-		keywords.put("continue", CONTINUE);
-		keywords.put("break", BREAK);
-		keywords.put("super", SUPER);
-		keywords.put("this", THIS);
-		keywords.put("print", PRINT);
-		keywords.put("input", INPUT);
-		keywords.put("type", TYPE);
-		keywords.put("enum", ENUM);
-	}
-
-	private final String fn;
-	private final String ftxt;
-	private Position pos;
+	private static final double[] POWERS = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private final Source source;
+	private final TokenBuffer tokens;
+	private final Names names;
+	private final int limit;
+	private int idx;
 	private char current;
-	private final List<Token> tokens = new ArrayList<>();
-	private final List<Token> emptyTokens = new ArrayList<>();
-	private	Position start;
+	private int width;
+	private int startIdx;
 	private TokenType type;
 
 	Lexer(String fn, String ftxt) {
-		this.fn = fn;
-		this.ftxt = ftxt;
-		this.pos = new Position(-1, 0, -1, fn, ftxt);
+		this(Source.of(fn, ftxt));
+	}
+
+	Lexer(Source source) {
+		this(source, 0, source.length());
+	}
+
+	//lexes only the window [start, end), used to re-lex an edited region
+	Lexer(Source source, int start, int end) {
+		this.source = source;
+		this.names = new Names();
+		this.tokens = new TokenBuffer(this, source, names);
+		this.limit = end;
+		this.idx = start;
 		this.current = '\0';
+		this.width = 0;
 		advanced();
+
+		//byte order mark
+		if(start == 0 && current == '\uFEFF') {
+			advanced();
+		}
+	}
+
+	TokenBuffer tokens() {
+		return tokens;
+	}
+
+	TokenBuffer scanTokens() {
+		tokens.fill();
+		return tokens;
 	}
 
-	List<Token> scanTokens() {
+	TokenType nextToken() {
 		while(current != '\0') {
 			switch(current) {
 				case '\t':
@@ -78,18 +67,14 @@ class Lexer {
 				case '#':
 					advanced();
 
-					while(current != '\n') {
+					while(current != '\0' && current != '\n') {
 						advanced();
 					}
-
-					advanced();
 					break;
 				case '\n':
-					addToken(NEWLINE, this.pos);
-					advanced();
-					break;
+					return single(NEWLINE);
 				case '\"':
-					start = this.pos.copy();
+					mark();
 
 					advanced();
 
@@ -97,13 +82,17 @@ class Lexer {
 						advanced();
 					}
 
+					if(current == '\0') {
+						ExpectedCharError stringError = new ExpectedCharError(marked(), position(), "'\"'");
+						return eof();
+					}
+
 					advanced();
 
-					addToken(STRINGL, this.pos.ftxt.substring(start.idx, this.pos.idx), start, this.pos);
-					break;
+					return add(STRINGL);
 				case '+':
 					type = PLUS;
-					start = this.pos.copy();
+					mark();
 
 					advanced();
 
@@ -111,13 +100,16 @@ class Lexer {
 						advanced();
 
 						type = PLUSEQUAL;
+					} else if(current =='+') {
+						advanced();
+
+						type = INCREMENT;
 					}
 
-					addToken(type, start, this.pos);
-					break;
+					return add(type);
 				case '-':
 					type = MINUS;
-					start = this.pos.copy();
+					mark();
 
 					advanced();
 
@@ -125,272 +117,548 @@ class Lexer {
 						advanced();
 
 						type = MINUSEQUAL;
-					}
+					} else if(current =='-') {
+						advanced();
 
-					if(current =='>') {
+						type = DECREMENT;
+					} else if(current =='>') {
 						advanced();
 
 						type = LAMBDA;
 					}
 
-					addToken(type, start, this.pos);
-					break;
+					return add(type);
 				case '*':
-					type = MUL;
-					start = this.pos.copy();
-
-					advanced();
-
-					if(current =='=') {
-						advanced();
-
-						type = MULEQUAL;
-					}
-
-					addToken(type, start, this.pos);
-					break;
+					return pair(MUL, '=', MULEQUAL);
 				case '/':
-					type = DIV;
-					start = this.pos.copy();
+					mark();
 
 					advanced();
 
-					if(current == '=') {
-						advanced();
-
-						type = DIVEQUAL;
-					}
-
 					if(current == '*') {
 						advanced();
 
-						type = null;
+						char previous = '\0';
 
-						while(current != '*' && this.pos.ftxt.charAt(this.pos.idx++) == '/') {
+						while(current != '\0' && !(previous == '*' && current == '/')) {
+							previous = current;
 							advanced();
 						}
-						advanced();
-					}
 
-					if(type != null) {
-						addToken(type, start, this.pos);
+						advanced();
+						break;
 					}
-					break;
-				case '%':
-					type = MOD;
-					start = this.pos.copy();
-
-					advanced();
 
-					if(current =='=') {
+					if(current == '=') {
 						advanced();
 
-						type = MODEQUAL;
+						return add(DIVEQUAL);
 					}
 
-					addToken(type, start, this.pos);
-					break;
+					return add(DIV);
+				case '%':
+					return pair(MOD, '=', MODEQUAL);
 				case '(':
-					addToken(LPAREN, this.pos);
-					break;
+					return single(LPAREN);
 				case ')':
-					addToken(RPAREN, this.pos);
-					break;
+					return single(RPAREN);
 				case '{':
-					addToken(LBRACE, this.pos);
-					break;
+					return single(LBRACE);
 				case '}':
-					addToken(RBRACE, this.pos);
-					break;
+					return single(RBRACE);
 				case '[':
-					addToken(LBRACKET, this.pos);
-					break;
+					return single(LBRACKET);
 				case ']':
-					addToken(RBRACKET, this.pos);
-					break;
+					return single(RBRACKET);
 				case '!':
-					type = NOT;
-					start = this.pos.copy();
+					return pair(NOT, '=', NOTEQUAL);
+				case '=':
+					return pair(EQUAL, '=', DEQUAL);
+				case '>':
+					return pair(GREATER, '=', GTE);
+				case '<':
+					return pair(LESS, '=', LTE);
+				case '|':
+					return pair(EOR, '|', OR);
+				case '&':
+					return pair(AMPERSAND, '&', AND);
+				case ',':
+					return single(COMMA);
+				case '.':
+					return single(DOT);
+				case '?':
+					return single(IRRBANG);
+				case ':':
+					return single(COLON);
+				case ';':
+					return single(SEMICOLON);
+				default:
+					if(current >= '0' && current <= '9') {
+						return number();
+					} else if((current >= 'a' && current <= 'z') || (current >= 'A' && current <= 'Z') || current =='_') {
+						mark();
 
-					advanced();
+						while(identifierPart(current)) {
+							advanced();
+						}
 
-					if(current =='=') {
+						type = keyword(startIdx, this.idx - startIdx);
+
+						if(type == IDENTIFIER) {
+							return add(IDENTIFIER, names.intern(source, startIdx, this.idx));
+						}
+
+						if(type == ELSE && elseIf()) {
+							type = ELIF;
+						}
+
+						return add(type);
+					} else {
+						mark();
+						char c = current;
 						advanced();
 
-						type = NOTEQUAL;
+						IllegalCharError charError = new IllegalCharError(marked(), position(), "\"" + c + "\"");
+						return eof();
 					}
+			}
+		}
 
-					addToken(type, start, this.pos);
-					break;
-				case '=':
-					type = EQUAL;
-					start = this.pos.copy();
+		return eof();
+	}
 
-					advanced();
+	private void advanced() {
+		this.idx += this.width;
 
-					if(current =='=') {
-						advanced();
+		if(idx >= limit) {
+			current = '\0';
+			width = 0;
+			return;
+		}
 
-						type = DEQUAL;
-					}
+		int b = source.byteAt(idx);
 
-					addToken(type, start, this.pos);
-					break;
-				case '>':
-					type = GREATER;
-					start = this.pos.copy();
+		if(b < 0x80) {
+			current = (char) b;
+			width = 1;
+		} else {
+			decode(idx, b);
+		}
+	}
 
-					advanced();
+	private void decode(int idx, int b) {
+		int codePoint;
+
+		if(b >= 0xf0) {
+			codePoint = b & 0x07;
+			width = 4;
+		} else if(b >= 0xe0) {
+			codePoint = b & 0x0f;
+			width = 3;
+		} else if(b >= 0xc0) {
+			codePoint = b & 0x1f;
+			width = 2;
+		} else {
+			current = '\uFFFD';
+			width = 1;
+			return;
+		}
 
-					if(current =='=') {
-						advanced();
+		if(idx + width > limit) {
+			current = '\uFFFD';
+			width = limit - idx;
+			return;
+		}
 
-						type = GTE;
-					}
+		for(int i = 1; i < width; i++) {
+			codePoint = (codePoint << 6) | (source.byteAt(idx + i) & 0x3f);
+		}
 
-					addToken(type, start, this.pos);
-					break;
-				case '<':
-					type = LESS;
-					start = this.pos.copy();
+		if(codePoint > 0xffff) {
+			current = '\uFFFD';
+		} else {
+			current = (char) codePoint;
+		}
+	}
 
-					advanced();
+	private TokenType number() {
+		mark();
 
-					if(current =='=') {
-						advanced();
+		if(current == '0' && (peek(1) == 'x' || peek(1) == 'X') && Character.digit(peek(2), 16) >= 0) {
+			advanced();
+			advanced();
 
-						type = LTE;
-					}
+			long value = 0;
+			int digits = 0;
 
-					addToken(type, start, this.pos);
-					break;
-				case '|':
-					type = EOR;
-					start = this.pos.copy();
+			while(Character.digit(current, 16) >= 0) {
+				value = (value << 4) | Character.digit(current, 16);
+				digits++;
+				advanced();
+			}
 
-					advanced();
+			if(digits > 16) {
+				InvalidSyntaxError numberError = new InvalidSyntaxError(marked(), position(), "Number too large");
+			}
 
-					if(current =='|') {
-						advanced();
+			tokens.addInteger(startIdx, this.idx, value);
+			return NUMBER;
+		}
 
-						type = OR;
-					}
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean decimal = false;
+		boolean exact = true;
+
+		while(current >= '0' && current <= '9') {
+			//a long holds any 18 digits, later ones only move the exponent
+			if(digits < 18) {
+				mantissa = mantissa * 10 + (current - '0');
+
+				if(mantissa != 0) {
+					digits++;
+				}
+			} else {
+				exponent++;
+				exact = false;
+			}
 
-					addToken(type, start, this.pos);
-					break;
-				case '&':
-					type = AMPERSAND;
-					start = this.pos.copy();
+			advanced();
+		}
 
-					advanced();
+		if(current == '.' && isDigit(peek(1))) {
+			decimal = true;
+			advanced();
 
-					if(current =='=') {
-						advanced();
+			while(current >= '0' && current <= '9') {
+				if(digits < 18) {
+					mantissa = mantissa * 10 + (current - '0');
+					exponent--;
 
-						type = AND;
+					if(mantissa != 0) {
+						digits++;
 					}
+				} else if(current != '0') {
+					exact = false;
+				}
 
-					addToken(type, start, this.pos);
-					break;
-				case ',':
-					addToken(COMMA, this.pos);
-					advanced();
-					break;
-				case '.':
-					addToken(DOT, this.pos);
-					advanced();
-					break;
-				case '?':
-					addToken(IRRBANG, this.pos);
-					advanced();
-					break;
-				case ':':
-					addToken(COLON, this.pos);
-					advanced();
-					break;
-				case ';':
-					addToken(SEMICOLON, this.pos);
-					advanced();
-					break;
-				default:
-					if(current >= '0' && current <= '9') {
-						int dotCount = 0;
-						start = this.pos.copy();
+				advanced();
+			}
+		}
 
-						while(current != '\0' && (current >= '0' && current <= '9')) {
-							if(current =='.') {
-								if(dotCount == 1) {
-									break;
-								}
+		if((current == 'e' || current == 'E') && (isDigit(peek(1)) || ((peek(1) == '+' || peek(1) == '-') && isDigit(peek(2))))) {
+			decimal = true;
+			advanced();
 
-								dotCount++;
-							}
-							advanced();
+			int sign = 1;
+
+			if(current == '+' || current == '-') {
+				if(current == '-') {
+					sign = -1;
+				}
+
+				advanced();
+			}
+
+			int value = 0;
+
+			while(current >= '0' && current <= '9') {
+				if(value < 100000) {
+					value = value * 10 + (current - '0');
+				}
+
+				advanced();
+			}
+
+			exponent += sign * value;
+		}
+
+		if(!decimal && exact) {
+			tokens.addInteger(startIdx, this.idx, mantissa);
+		} else if(exact && mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+			//both operands are exact doubles, so one rounding gives the correct result
+			double value = mantissa;
+
+			if(exponent < 0) {
+				value /= POWERS[-exponent];
+			} else {
+				value *= POWERS[exponent];
+			}
+
+			tokens.addDecimal(startIdx, this.idx, value);
+		} else {
+			tokens.addDecimal(startIdx, this.idx, Double.parseDouble(source.text(startIdx, this.idx)));
+		}
+
+		return NUMBER;
+	}
+
+	private int peek(int offset) {
+		int next = this.idx + offset;
+
+		if(next < limit) {
+			return source.byteAt(next);
+		}
+
+		return '\0';
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private TokenType keyword(int start, int length) {
+		switch(length) {
+			case 2:
+				if(match(start, "if")) {
+					return IF;
+				}
+
+				if(match(start, "do")) {
+					return DO;
+				}
+				break;
+			case 3:
+				if(match(start, "var")) {
+					return VAR;
+				}
+
+				if(match(start, "num")) {
+					return NUM;
+				}
+
+				if(match(start, "for")) {
+					return FOR;
+				}
+				break;
+			case 4:
+				switch(source.byteAt(start)) {
+					case 'c':
+						if(match(start, "char")) {
+							return CHAR;
 						}
 
-						addToken(NUMBER, Double.parseDouble(ftxt.substring(start.idx, this.pos.idx)), start, this.pos);
-					} else if((current >= 'a' && current <= 'z') || (current >= 'A' && current <= 'Z') || current =='_') {
-						start = this.pos.copy();
+						if(match(start, "case")) {
+							return CASE;
+						}
+						break;
+					case 'e':
+						if(match(start, "else")) {
+							return ELSE;
+						}
 
-						while((current >= '0' && current <= '9') || ((current >= 'a' && current <= 'z') || (current >= 'A' && current <= 'Z') || current =='_')) {
-							advanced();
+						if(match(start, "elif")) {
+							return ELIF;
 						}
 
-						String text = ftxt.substring(start.idx, this.pos.idx);
-						type = keywords.get(text);
+						if(match(start, "enum")) {
+							return ENUM;
+						}
+						break;
+					case 't':
+						if(match(start, "true")) {
+							return TRUE;
+						}
 
-						if(type == null) {
-							type = 	IDENTIFIER;
+						if(match(start, "this")) {
+							return THIS;
 						}
 
-						addToken(type, text, start, this.pos);
-					} else {
-						start = this.pos.copy();
-						char c = current;
-						advanced();
-						
-						IllegalCharError charError = new IllegalCharError(start, this.pos, "\"" + c + "\"");
-						return emptyTokens;
-					}
-					break;
+						if(match(start, "type")) {
+							return TYPE;
+						}
+						break;
+					case 'i':
+						if(match(start, "init")) {
+							return INIT;
+						}
+						break;
+				}
+				break;
+			case 5:
+				switch(source.byteAt(start)) {
+					case 'c':
+						if(match(start, "class")) {
+							return CLASS;
+						}
+
+						if(match(start, "const")) {
+							return CONST;
+						}
+						break;
+					case 'f':
+						if(match(start, "false")) {
+							return FALSE;
+						}
+						break;
+					case 'w':
+						if(match(start, "while")) {
+							return WHILE;
+						}
+						break;
+					case 'b':
+						if(match(start, "break")) {
+							return BREAK;
+						}
+						break;
+					case 's':
+						if(match(start, "super")) {
+							return SUPER;
+						}
+						break;
+					case 'p':
+						if(match(start, "print")) {
+							return PRINT;
+						}
+						break;
+					case 'i':
+						if(match(start, "input")) {
+							return INPUT;
+						}
+						break;
+				}
+				break;
+			case 6:
+				switch(source.byteAt(start)) {
+					case 's':
+						if(match(start, "string")) {
+							return STRING;
+						}
+
+						if(match(start, "switch")) {
+							return SWITCH;
+						}
+						break;
+					case 'r':
+						if(match(start, "return")) {
+							return RETURN;
+						}
+						break;
+					case 'm':
+						if(match(start, "method")) {
+							return METHOD;
+						}
+						break;
+					case 'i':
+						if(match(start, "import")) {
+							return IMPORT;
+						}
+						break;
+					case 'e':
+						if(match(start, "elseif")) {
+							return ELIF;
+						}
+						break;
+				}
+				break;
+			case 7:
+				if(match(start, "package")) {
+					return PACKAGE;
+				}
+
+				if(match(start, "boolean")) {
+					return BOOLEAN;
+				}
+
+				if(match(start, "default")) {
+					return DEFAULT;
+				}
+				break;
+			case 8:
+				if(match(start, "continue")) {
+					return CONTINUE;
+				}
+				break;
+		}
+
+		return IDENTIFIER;
+	}
+
+	private boolean match(int start, String keyword) {
+		for(int i = 0; i < keyword.length(); i++) {
+			if(source.byteAt(start + i) != keyword.charAt(i)) {
+				return false;
 			}
 		}
 
-		tokens.add(new Token(EOF, "", this.pos, null));
-		return tokens;
+		return true;
 	}
 
-	private void advanced() {
-		this.pos.advanced(this.current);
+	//"else if" is one token, the same as "elseif" and "elif"
+	private boolean elseIf() {
+		int next = this.idx;
 
-		if(this.pos.idx < ftxt.length()) {
-			current = this.ftxt.charAt(this.pos.idx);
-		} else {
-			current = '\0';
+		while(next < limit && (source.byteAt(next) == ' ' || source.byteAt(next) == '\t')) {
+			next++;
+		}
+
+		if(next == this.idx || next + 2 > limit || !match(next, "if")) {
+			return false;
 		}
+
+		if(next + 2 < limit && identifierPart(source.byteAt(next + 2))) {
+			return false;
+		}
+
+		while(this.idx < next + 2) {
+			advanced();
+		}
+
+		return true;
 	}
 
-	private void addToken(TokenType type) {
-		addToken(type, null);
+	private static boolean identifierPart(int c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
 	}
 
-	private void addToken(TokenType type, Object literal) {
-		addToken(type, literal, null);
+	private void mark() {
+		this.startIdx = this.idx;
 	}
 
-	private void addToken(TokenType type, Position start) {
-		addToken(type, null, start);
+	private Position marked() {
+		return new Position(source, startIdx);
 	}
 
-	private void addToken(TokenType type, Object literal, Position start) {
-		addToken(type, literal, start, null);
+	private Position position() {
+		return new Position(source, idx);
 	}
 
-	private void addToken(TokenType type, Position start, Position end) {
-		addToken(type, null, start, end);
+	private TokenType single(TokenType type) {
+		mark();
+		advanced();
+
+		return add(type);
 	}
 
-	private void addToken(TokenType type, Object literal, Position start, Position end) {
-		tokens.add(new Token(type, literal, start, end));
+	private TokenType pair(TokenType type, char next, TokenType pairType) {
+		mark();
+		advanced();
+
+		if(current == next) {
+			advanced();
+
+			type = pairType;
+		}
+
+		return add(type);
+	}
+
+	private TokenType eof() {
+		mark();
+
+		return add(EOF);
+	}
+
+	private TokenType add(TokenType type) {
+		tokens.add(type, startIdx, this.idx);
+
+		return type;
+	}
+
+	private TokenType add(TokenType type, int value) {
+		tokens.add(type, startIdx, this.idx, value);
+
+		return type;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package inaf;
+
+import java.util.Arrays;
+
+class Names {
+	private int[] slots;
+	private int[] hashes;
+	private String[] names;
+	private int size;
+
+	Names() {
+		this.slots = new int[64];
+		this.hashes = new int[32];
+		this.names = new String[32];
+		this.size = 0;
+	}
+
+	int intern(Source source, int start, int end) {
+		int hash = hash(source, start, end);
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+
+		//slots hold id + 1 so that 0 marks an empty slot
+		while(slots[slot] != 0) {
+			int id = slots[slot] - 1;
+
+			if(hashes[id] == hash && equals(names[id], source, start, end)) {
+				return id;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		if(size == names.length) {
+			hashes = Arrays.copyOf(hashes, size * 2);
+			names = Arrays.copyOf(names, size * 2);
+		}
+
+		int id = size++;
+		hashes[id] = hash;
+		names[id] = source.text(start, end);
+		slots[slot] = id + 1;
+
+		if(size * 2 > slots.length) {
+			rehash();
+		}
+
+		return id;
+	}
+
+	String name(int id) {
+		return names[id];
+	}
+
+	int size() {
+		return size;
+	}
+
+	private void rehash() {
+		int[] table = new int[slots.length * 2];
+		int mask = table.length - 1;
+
+		for(int id = 0; id < size; id++) {
+			int slot = hashes[id] & mask;
+
+			while(table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+
+			table[slot] = id + 1;
+		}
+
+		this.slots = table;
+	}
+
+	private static int hash(Source source, int start, int end) {
+		int hash = 0x811c9dc5;
+
+		for(int i = start; i < end; i++) {
+			hash = (hash ^ source.byteAt(i)) * 0x01000193;
+		}
+
+		return hash;
+	}
+
+	//identifiers are ascii only, so each byte is one char
+	private static boolean equals(String name, Source source, int start, int end) {
+		if(name.length() != end - start) {
+			return false;
+		}
+
+		for(int i = 0; i < name.length(); i++) {
+			if(name.charAt(i) != source.byteAt(start + i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package inaf;
+
+//every instruction is one int followed by its int operands
+final class OpCode {
+	static final int CONSTANT = 0; //index
+	static final int NIL = 1;
+	static final int TRUE = 2;
+	static final int FALSE = 3;
+	static final int POP = 4;
+
+	static final int LOAD = 5; //slot
+	static final int LOAD_NUM = 6; //slot
+	static final int LOAD_OUTER = 7; //depth, slot
+	static final int LOAD_OUTER_NUM = 8; //depth, slot
+	static final int LOAD_GLOBAL = 9; //name
+	static final int STORE = 10; //slot
+	static final int STORE_NUM = 11; //slot
+	static final int STORE_OUTER = 12; //depth, slot
+	static final int STORE_OUTER_NUM = 13; //depth, slot
+	static final int STORE_GLOBAL = 14; //name
+	static final int CHECK = 15; //type ordinal
+
+	static final int ADD = 16;
+	static final int SUBTRACT = 17;
+	static final int MULTIPLY = 18;
+	static final int DIVIDE = 19;
+	static final int MODULO = 20;
+	static final int NEGATE = 21;
+	static final int NOT = 22;
+	static final int EQUAL = 23;
+	static final int NOT_EQUAL = 24;
+	static final int LESS = 25;
+	static final int LESS_EQUAL = 26;
+	static final int GREATER = 27;
+	static final int GREATER_EQUAL = 28;
+	static final int AMPERSAND = 29;
+	static final int EOR = 30;
+	static final int TYPE = 31;
+
+	static final int JUMP = 32; //target
+	static final int JUMP_FALSE = 33; //target
+
+	static final int CALL = 34; //argument count
+	static final int SUPER_CALL = 35; //argument count
+	static final int RETURN = 36;
+
+	static final int LIST = 37; //element count
+	static final int GET = 38; //name, cache
+	static final int SET = 39; //name, cache
+	static final int THIS = 40;
+	static final int SUPER = 41; //name
+	static final int METHOD = 42; //chunk
+	static final int CLASS = 43; //class info
+	static final int ENUM = 44; //enum statement
+	static final int PRINT = 45;
+	static final int INPUT = 46; //1 when a prompt is on the stack
+	static final int INVOKE = 47; //name, argument count, cache
+	static final int LOOP_TEST = 48; //comparison opcode, counter slot, limit slot, exit target
+	static final int LOOP_STEP = 49; //counter slot, step constant
+	static final int BACK_EDGE = 50; //loop statement, its tier counter, exit target
+	static final int SWITCH = 51; //dispatch, then a target per case label and one for no match
+	static final int DUP = 52;
+	static final int DUP_UNDER = 53; //copies the top below the value under it
+
+	private OpCode() {}
+}
\ No newline at end of file
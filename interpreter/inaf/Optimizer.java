@@ -0,0 +1,574 @@
+package inaf;
+
+import static inaf.TokenType.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//folds constant expressions, inlines consts and drops branches whose condition is known before running
+class Optimizer implements Expr.Visitor<Expr>, Stmt.Visitor<Stmt> {
+	//a name maps to its folded value, or to null when a declaration that is not a constant hides it
+	private final List<Map<String, Expr>> scopes = new ArrayList<>();
+
+	static List<Stmt> optimize(List<Stmt> statements) {
+		Optimizer optimizer = new Optimizer();
+
+		return optimizer.optimize(statements, true);
+	}
+
+	private List<Stmt> optimize(List<? extends Stmt> statements, boolean scoped) {
+		if(statements == null) {
+			return null;
+		}
+
+		if(scoped) {
+			beginScope();
+
+			//methods, classes and enums are visible in their whole scope, so they hide a const from the start
+			for(Stmt statement : statements) {
+				hoist(statement);
+			}
+		}
+
+		List<Stmt> result = new ArrayList<>(statements.size());
+
+		for(Stmt statement : statements) {
+			Stmt optimized = optimize(statement);
+
+			if(optimized != null) {
+				result.add(optimized);
+			}
+		}
+
+		if(scoped) {
+			endScope();
+		}
+
+		return result;
+	}
+
+	private Stmt optimize(Stmt statement) {
+		if(statement == null) {
+			return null;
+		}
+
+		return statement.accept(this);
+	}
+
+	private Expr optimize(Expr expression) {
+		if(expression == null) {
+			return null;
+		}
+
+		return expression.accept(this);
+	}
+
+	private List<Expr> optimizeAll(List<Expr> expressions) {
+		List<Expr> result = new ArrayList<>(expressions.size());
+
+		for(Expr expression : expressions) {
+			result.add(optimize(expression));
+		}
+
+		return result;
+	}
+
+	private void hoist(Stmt statement) {
+		if(statement instanceof Stmt.Method) {
+			hide(((Stmt.Method) statement).name);
+		} else if(statement instanceof Stmt.Class) {
+			hide(((Stmt.Class) statement).name);
+		} else if(statement instanceof Stmt.Enum) {
+			Stmt.Enum enumStmt = (Stmt.Enum) statement;
+
+			if(enumStmt.name != null) {
+				hide(enumStmt.name);
+			} else {
+				for(Token value : enumStmt.enumValue) {
+					hide(value);
+				}
+			}
+		}
+	}
+
+	private void beginScope() {
+		scopes.add(new HashMap<>());
+	}
+
+	private void endScope() {
+		scopes.remove(scopes.size() - 1);
+	}
+
+	private void hide(Token name) {
+		scopes.get(scopes.size() - 1).put((String) name.literal, null);
+	}
+
+	private Expr lookup(Token name) {
+		for(int i = scopes.size() - 1; i >= 0; i--) {
+			Map<String, Expr> scope = scopes.get(i);
+
+			if(scope.containsKey(name.literal)) {
+				return scope.get(name.literal);
+			}
+		}
+
+		return null;
+	}
+
+	private static boolean constant(Expr expr) {
+		return expr instanceof Expr.NumberNode || expr instanceof Expr.StringNode || expr instanceof Expr.LiteralNode && ((Expr.LiteralNode) expr).value instanceof java.lang.Boolean;
+	}
+
+	private static Object value(Expr expr) {
+		if(expr instanceof Expr.NumberNode) {
+			return ((Expr.NumberNode) expr).value;
+		}
+
+		if(expr instanceof Expr.StringNode) {
+			return ((Expr.StringNode) expr).token.literal;
+		}
+
+		return ((Expr.LiteralNode) expr).value;
+	}
+
+	//a constant node spanning the expression it replaces, null when the value has no literal form
+	private static Expr node(Object value, Position start, Position end) {
+		if(value instanceof Double) {
+			return new Expr.NumberNode(new Token(NUMBER, value, start, end));
+		}
+
+		if(value instanceof String) {
+			return new Expr.StringNode(new Token(STRINGL, value, start, end));
+		}
+
+		if(value instanceof java.lang.Boolean) {
+			return new Expr.LiteralNode(value, start, end);
+		}
+
+		return null;
+	}
+
+	//only folds what cannot fail, anything that would raise a runtime error is left for the runtime to report
+	private static Object fold(TokenType operator, Object left, Object right) {
+		if(left instanceof Double && right instanceof Double) {
+			double a = (Double) left;
+			double b = (Double) right;
+
+			switch(operator) {
+				case PLUS:
+					return a + b;
+				case MINUS:
+					return a - b;
+				case MUL:
+					return a * b;
+				case DIV:
+					return b == 0 ? null : a / b;
+				case MOD:
+					return b == 0 ? null : Interpreter.modulo(a, b, null);
+				case GREATER:
+					return a > b;
+				case GTE:
+					return a >= b;
+				case LESS:
+					return a < b;
+				case LTE:
+					return a <= b;
+				case DEQUAL:
+					return a == b;
+				case NOTEQUAL:
+					return a != b;
+				case AMPERSAND:
+					return (double) ((long) a & (long) b);
+				case EOR:
+					return (double) ((long) a | (long) b);
+				default:
+					break;
+			}
+		}
+
+		if(left instanceof String && right instanceof String) {
+			switch(operator) {
+				case GREATER:
+					return ((String) left).compareTo((String) right) > 0;
+				case GTE:
+					return ((String) left).compareTo((String) right) >= 0;
+				case LESS:
+					return ((String) left).compareTo((String) right) < 0;
+				case LTE:
+					return ((String) left).compareTo((String) right) <= 0;
+				default:
+					break;
+			}
+		}
+
+		if(left instanceof java.lang.Boolean && right instanceof java.lang.Boolean) {
+			switch(operator) {
+				case AMPERSAND:
+					return (java.lang.Boolean) left & (java.lang.Boolean) right;
+				case EOR:
+					return (java.lang.Boolean) left | (java.lang.Boolean) right;
+				default:
+					break;
+			}
+		}
+
+		switch(operator) {
+			case PLUS:
+				if(left instanceof String || right instanceof String) {
+					return Interpreter.stringify(left) + Interpreter.stringify(right);
+				}
+
+				return null;
+			case DEQUAL:
+				return Interpreter.equal(left, right);
+			case NOTEQUAL:
+				return !Interpreter.equal(left, right);
+			case AND:
+				return Interpreter.truthy(left) && Interpreter.truthy(right);
+			case OR:
+				return Interpreter.truthy(left) || Interpreter.truthy(right);
+			default:
+				return null;
+		}
+	}
+
+	@Override
+	public Expr visitNumberNode(Expr.NumberNode expr) {
+		return expr;
+	}
+
+	@Override
+	public Expr visitStringNode(Expr.StringNode expr) {
+		return expr;
+	}
+
+	@Override
+	public Expr visitLiteralNode(Expr.LiteralNode expr) {
+		return expr;
+	}
+
+	@Override
+	public Expr visitListNode(Expr.ListNode expr) {
+		return new Expr.ListNode(optimizeAll(expr.elementsNode), expr.start, expr.end);
+	}
+
+	@Override
+	public Expr visitAssignNode(Expr.AssignNode expr) {
+		return new Expr.AssignNode(expr.token, optimize(expr.value), expr.postfix);
+	}
+
+	@Override
+	public Expr visitAccessNode(Expr.AccessNode expr) {
+		Expr value = lookup(expr.token);
+
+		if(value != null) {
+			return node(value(value), expr.start, expr.end);
+		}
+
+		return expr;
+	}
+
+	@Override
+	public Expr visitBinaryOpNode(Expr.BinaryOpNode expr) {
+		Expr left = optimize(expr.left);
+		Expr right = optimize(expr.right);
+
+		if(constant(left)) {
+			//a known left side decides and or or without looking at the right one
+			if(expr.operator.type == AND && !Interpreter.truthy(value(left)) || expr.operator.type == OR && Interpreter.truthy(value(left))) {
+				return node(expr.operator.type == OR, expr.start, expr.end);
+			}
+
+			if(constant(right)) {
+				Expr folded = node(fold(expr.operator.type, value(left), value(right)), expr.start, expr.end);
+
+				if(folded != null) {
+					return folded;
+				}
+			}
+
+			if(expr.operator.type == TYPE && right instanceof Expr.LiteralNode) {
+				Expr folded = node(Interpreter.type(value(left), ((Expr.LiteralNode) right).value), expr.start, expr.end);
+
+				if(folded != null) {
+					return folded;
+				}
+			}
+		}
+
+		return new Expr.BinaryOpNode(left, expr.operator, right);
+	}
+
+	@Override
+	public Expr visitUnaryOpNode(Expr.UnaryOpNode expr) {
+		Expr node = optimize(expr.node);
+
+		if(constant(node)) {
+			Object value = value(node);
+
+			if(expr.operator.type == MINUS && value instanceof Double) {
+				return node(-(Double) value, expr.start, expr.end);
+			}
+
+			if(expr.operator.type == NOT) {
+				return node(!Interpreter.truthy(value), expr.start, expr.end);
+			}
+		}
+
+		return new Expr.UnaryOpNode(expr.operator, node);
+	}
+
+	@Override
+	public Expr visitCallNode(Expr.CallNode expr) {
+		return new Expr.CallNode(optimize(expr.callee), expr.lparen, optimizeAll(expr.arguments), expr.rparen);
+	}
+
+	@Override
+	public Expr visitGetNode(Expr.GetNode expr) {
+		return new Expr.GetNode(optimize(expr.object), expr.token);
+	}
+
+	@Override
+	public Expr visitSetNode(Expr.SetNode expr) {
+		return new Expr.SetNode(optimize(expr.object), expr.token, expr.update == null ? null : expr.update.operator, optimize(expr.value), expr.postfix);
+	}
+
+	@Override
+	public Expr visitThisNode(Expr.ThisNode expr) {
+		return expr;
+	}
+
+	@Override
+	public Expr visitSuperNode(Expr.SuperNode expr) {
+		return expr;
+	}
+
+	@Override
+	public Stmt visitBlockStmt(Stmt.Block stmt) {
+		return new Stmt.Block(optimize(stmt.statements, true), stmt.start, stmt.end);
+	}
+
+	@Override
+	public Stmt visitExpressionStmt(Stmt.Expression stmt) {
+		return new Stmt.Expression(optimize(stmt.expression));
+	}
+
+	@Override
+	public Stmt visitVarStmt(Stmt.Var stmt) {
+		Stmt.Var result = new Stmt.Var(stmt.name, optimize(stmt.initializer));
+		hide(stmt.name);
+
+		return result;
+	}
+
+	@Override
+	public Stmt visitConstStmt(Stmt.Const stmt) {
+		Expr initializer = optimize(stmt.initializer);
+		Stmt.Const result = new Stmt.Const(stmt.name, initializer);
+
+		//the declaration stays so the resolver still reports reassignments and duplicates
+		if(constant(initializer)) {
+			scopes.get(scopes.size() - 1).put((String) stmt.name.literal, initializer);
+		} else {
+			hide(stmt.name);
+		}
+
+		return result;
+	}
+
+	@Override
+	public Stmt visitStringStmt(Stmt.String stmt) {
+		Stmt.String result = new Stmt.String(stmt.name, optimize(stmt.initializer));
+		hide(stmt.name);
+
+		return result;
+	}
+
+	@Override
+	public Stmt visitNumStmt(Stmt.Num stmt) {
+		Stmt.Num result = new Stmt.Num(stmt.name, optimize(stmt.initializer));
+		hide(stmt.name);
+
+		return result;
+	}
+
+	@Override
+	public Stmt visitCharStmt(Stmt.Char stmt) {
+		Stmt.Char result = new Stmt.Char(stmt.name, optimize(stmt.initializer));
+		hide(stmt.name);
+
+		return result;
+	}
+
+	@Override
+	public Stmt visitBooleanStmt(Stmt.Boolean stmt) {
+		Stmt.Boolean result = new Stmt.Boolean(stmt.name, optimize(stmt.initializer));
+		hide(stmt.name);
+
+		return result;
+	}
+
+	@Override
+	public Stmt visitIfStmt(Stmt.If stmt) {
+		Expr condition = optimize(stmt.condition);
+
+		if(constant(condition)) {
+			List<Stmt> branch = Interpreter.truthy(value(condition)) ? stmt.thenBranch : stmt.elseBranch;
+
+			if(branch == null || branch.isEmpty()) {
+				return null;
+			}
+
+			//a block keeps the branch's own scope
+			return new Stmt.Block(optimize(branch, true), stmt.start, stmt.end);
+		}
+
+		return new Stmt.If(condition, optimize(stmt.thenBranch, true), optimize(stmt.elseBranch, true), stmt.start, stmt.end);
+	}
+
+	@Override
+	public Stmt visitForStmt(Stmt.For stmt) {
+		beginScope();
+		Stmt initializer = optimize(stmt.initializer);
+		Expr condition = optimize(stmt.condition);
+
+		if(constant(condition) && !Interpreter.truthy(value(condition))) {
+			endScope();
+
+			if(initializer == null) {
+				return null;
+			}
+
+			List<Stmt> statements = new ArrayList<>(1);
+			statements.add(initializer);
+
+			return new Stmt.Block(statements, stmt.start, stmt.end);
+		}
+
+		Expr increment = optimize(stmt.increment);
+		List<Stmt> body = optimize(stmt.body, true);
+		endScope();
+
+		return new Stmt.For(initializer, condition, increment, body, stmt.start, stmt.end);
+	}
+
+	@Override
+	public Stmt visitWhileStmt(Stmt.While stmt) {
+		Expr condition = optimize(stmt.condition);
+
+		if(constant(condition) && !Interpreter.truthy(value(condition))) {
+			return null;
+		}
+
+		return new Stmt.While(condition, optimize(stmt.body, true), stmt.start, stmt.end);
+	}
+
+	@Override
+	public Stmt visitDoStmt(Stmt.Do stmt) {
+		List<Stmt> body = optimize(stmt.body, true);
+
+		return new Stmt.Do(optimize(stmt.condition), body, stmt.start, stmt.end);
+	}
+
+	//a case can start at any statement, so the body is optimized one statement at a time and the entries follow what is dropped
+	@Override
+	public Stmt visitSwitchStmt(Stmt.Switch stmt) {
+		Expr value = optimize(stmt.value);
+		List<Expr> labels = optimizeAll(stmt.labels);
+		List<Stmt> body = new ArrayList<>(stmt.body.size());
+		int[] moved = new int[stmt.body.size() + 1];
+
+		beginScope();
+
+		for(Stmt statement : stmt.body) {
+			hoist(statement);
+		}
+
+		for(int i = 0; i < stmt.body.size(); i++) {
+			moved[i] = body.size();
+			Stmt optimized = optimize(stmt.body.get(i));
+
+			if(optimized != null) {
+				body.add(optimized);
+			}
+		}
+
+		moved[stmt.body.size()] = body.size();
+		endScope();
+
+		int[] entries = new int[stmt.entries.length];
+
+		for(int i = 0; i < entries.length; i++) {
+			entries[i] = moved[stmt.entries[i]];
+		}
+
+		return new Stmt.Switch(value, labels, entries, stmt.fallback >= 0 ? moved[stmt.fallback] : -1, body, stmt.start, stmt.end);
+	}
+
+	@Override
+	public Stmt visitMethodStmt(Stmt.Method stmt) {
+		return new Stmt.Method(stmt.name, stmt.parametters, stmt.types, function(stmt.parametters, stmt.body), stmt.start, stmt.end);
+	}
+
+	@Override
+	public Stmt visitInitStmt(Stmt.Init stmt) {
+		return new Stmt.Init(stmt.name, stmt.parametters, stmt.types, function(stmt.parametters, stmt.body), stmt.start, stmt.end);
+	}
+
+	private List<Stmt> function(List<Token> parametters, List<Stmt> body) {
+		beginScope();
+
+		for(Token parametter : parametters) {
+			hide(parametter);
+		}
+
+		List<Stmt> result = optimize(body, true);
+		endScope();
+
+		return result;
+	}
+
+	@Override
+	public Stmt visitClassStmt(Stmt.Class stmt) {
+		Stmt.Init constructor = stmt.constructor == null ? null : (Stmt.Init) optimize(stmt.constructor);
+		List<Stmt.Method> methods = new ArrayList<>(stmt.methods.size());
+
+		for(Stmt.Method method : stmt.methods) {
+			methods.add((Stmt.Method) optimize(method));
+		}
+
+		return new Stmt.Class(stmt.name, stmt.supClass, constructor, methods, stmt.start, stmt.end);
+	}
+
+	@Override
+	public Stmt visitEnumStmt(Stmt.Enum stmt) {
+		return stmt;
+	}
+
+	@Override
+	public Stmt visitReturnStmt(Stmt.Return stmt) {
+		return new Stmt.Return(stmt.name, optimizeAll(stmt.value));
+	}
+
+	@Override
+	public Stmt visitContinueStmt(Stmt.Continue stmt) {
+		return stmt;
+	}
+
+	@Override
+	public Stmt visitBreakStmt(Stmt.Break stmt) {
+		return stmt;
+	}
+
+	@Override
+	public Stmt visitPrintStmt(Stmt.Print stmt) {
+		return new Stmt.Print(optimize(stmt.expression), stmt.start, stmt.end);
+	}
+
+	@Override
+	public Stmt visitInputStmt(Stmt.Input stmt) {
+		return new Stmt.Input(optimize(stmt.expression), stmt.start, stmt.end);
+	}
+}
\ No newline at end of file
@@ -6,39 +6,867 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
 
-class ParserResult {
+class Parser {
+	private static final int ASSIGNMENT = 1;
+	private static final int OR_PREC = 2;
+	private static final int AND_PREC = 3;
+	private static final int EOR_PREC = 4;
+	private static final int AMPERSAND_PREC = 5;
+	private static final int EQUALITY = 6;
+	private static final int COMPARISON = 7;
+	private static final int TERM = 8;
+	private static final int FACTOR = 9;
+	private static final int UNARY = 10;
+	private static final int POSTFIX = 11;
 
-}
+	//binding power of every token in infix or postfix position, 0 ends an expression
+	private static final int[] PRECEDENCE = new int[TokenType.values().length];
 
-class Parser {
-	private final List<Token> tokens;
+	static {
+		precedence(ASSIGNMENT, EQUAL, PLUSEQUAL, MINUSEQUAL, MULEQUAL, DIVEQUAL, MODEQUAL);
+		precedence(OR_PREC, OR);
+		precedence(AND_PREC, AND);
+		precedence(EOR_PREC, EOR);
+		precedence(AMPERSAND_PREC, AMPERSAND);
+		precedence(EQUALITY, DEQUAL, NOTEQUAL);
+		precedence(COMPARISON, GREATER, GTE, LESS, LTE, TYPE);
+		precedence(TERM, PLUS, MINUS);
+		precedence(FACTOR, MUL, DIV, MOD);
+		precedence(POSTFIX, LPAREN, DOT, INCREMENT, DECREMENT);
+	}
+
+	private static void precedence(int precedence, TokenType... types) {
+		for(TokenType type : types) {
+			PRECEDENCE[type.ordinal()] = precedence;
+		}
+	}
+
+	private static class ParseError extends RuntimeException {
+		ParseError() {
+			super(null, null, false, false);
+		}
+	}
+
+	private final TokenBuffer tokens;
 	private int tokenIdx;
-	private int amount;
-	private Token currentToken; 
+	private int previous;
+	private int depth;
+	private TokenType current;
 
-	Parser(List<Token> tokens) {
+	Parser(TokenBuffer tokens) {
 		this.tokens = tokens;
 		this.tokenIdx = -1;
-		this.currentToken = null;
+		this.previous = 0;
+		this.depth = 0;
+		this.current = null;
+		advanced();
+	}
+
+	List<Stmt> parse() {
+		List<Stmt> statements = new ArrayList<>();
+
+		skipTerminators();
+
+		while(current != EOF) {
+			Stmt statement = declaration();
+
+			if(statement != null) {
+				statements.add(statement);
+			}
+
+			skipTerminators();
+		}
+
+		return statements;
+	}
+
+	//parses a source window that must hold exactly one declaration, null otherwise
+	Stmt parseDeclaration() {
+		skipTerminators();
+
+		Stmt statement = declaration();
+
+		skipTerminators();
+
+		if(current != EOF) {
+			return null;
+		}
+
+		return statement;
+	}
+
+	Stmt declaration() {
+		try {
+			switch(current) {
+				case PACKAGE:
+				case IMPORT:
+					while(current != NEWLINE && current != SEMICOLON && current != EOF) {
+						advanced();
+					}
+
+					return null;
+				case CLASS:
+					return classDeclaration();
+				case METHOD:
+					return method();
+				case ENUM:
+					return enumDeclaration();
+				case VAR:
+				case CONST:
+				case STRING:
+				case NUM:
+				case CHAR:
+				case BOOLEAN:
+					Stmt variable = variable();
+					endStatement();
+
+					return variable;
+				default:
+					return statement();
+			}
+		} catch(ParseError error) {
+			synchronize();
+
+			return null;
+		}
+	}
+
+	private Stmt statement() {
+		Token keyword;
+		Position start = position();
+
+		switch(current) {
+			case LBRACE:
+				List<Stmt> statements = block();
+
+				return new Stmt.Block(statements, start, previousEnd());
+			case IF:
+				return ifStatement();
+			case FOR:
+				return forStatement();
+			case WHILE:
+				advanced();
+
+				Expr whileCondition = expression();
+				List<Stmt> whileBody = body();
+
+				return new Stmt.While(whileCondition, whileBody, start, previousEnd());
+			case DO:
+				advanced();
+
+				Expr doCondition = null;
+
+				if(current != LBRACE) {
+					doCondition = expression();
+				}
+
+				List<Stmt> doBody = body();
+
+				return new Stmt.Do(doCondition, doBody, start, previousEnd());
+			case SWITCH:
+				return switchStatement();
+			case RETURN:
+				keyword = currentToken();
+				advanced();
+
+				List<Expr> values = new ArrayList<>();
+
+				if(!atEnd()) {
+					do {
+						values.add(expression());
+					} while(match(COMMA));
+				}
+
+				endStatement();
+				return new Stmt.Return(keyword, values);
+			case CONTINUE:
+				keyword = currentToken();
+				advanced();
+				endStatement();
+
+				return new Stmt.Continue(keyword);
+			case BREAK:
+				keyword = currentToken();
+				advanced();
+				endStatement();
+
+				return new Stmt.Break(keyword);
+			case PRINT:
+				advanced();
+
+				Expr printValue = expression();
+				endStatement();
+
+				return new Stmt.Print(printValue, start, previousEnd());
+			case INPUT:
+				advanced();
+
+				Expr prompt = null;
+
+				if(current == LPAREN && tokens.type(tokenIdx + 1) == RPAREN) {
+					advanced();
+					advanced();
+				} else if(!atEnd()) {
+					prompt = expression();
+				}
+
+				endStatement();
+
+				return new Stmt.Input(prompt, start, previousEnd());
+			default:
+				Expr expression = expression();
+				endStatement();
+
+				return new Stmt.Expression(expression);
+		}
+	}
+
+	private Stmt variable() {
+		TokenType type = current;
+		advanced();
+
+		//num[] and the like hold a list, lists are typed at runtime so the slot is untyped
+		if(current == LBRACKET) {
+			advanced();
+			consume(RBRACKET, "Expected ']'");
+
+			if(type != CONST) {
+				type = VAR;
+			}
+		}
+
+		Token name = consume(IDENTIFIER, "Expected variable name");
+		Expr initializer = null;
+
+		if(match(EQUAL)) {
+			initializer = expression();
+		} else if(type == CONST) {
+			throw error("Constant '" + name.literal + "' needs a value");
+		}
+
+		switch(type) {
+			case CONST:
+				return new Stmt.Const(name, initializer);
+			case STRING:
+				return new Stmt.String(name, initializer);
+			case NUM:
+				return new Stmt.Num(name, initializer);
+			case CHAR:
+				return new Stmt.Char(name, initializer);
+			case BOOLEAN:
+				return new Stmt.Boolean(name, initializer);
+			default:
+				return new Stmt.Var(name, initializer);
+		}
+	}
+
+	private Stmt ifStatement() {
+		Position start = position();
+		advanced();
+
+		Expr condition = expression();
+		List<Stmt> thenBranch = body();
+		List<Stmt> elseBranch = null;
+
+		int next = nextSignificant();
+
+		if(tokens.type(next) == ELIF) {
+			jump(next);
+			elseBranch = new ArrayList<>();
+			elseBranch.add(ifStatement());
+		} else if(tokens.type(next) == ELSE) {
+			jump(next);
+			advanced();
+			elseBranch = body();
+		}
+
+		return new Stmt.If(condition, thenBranch, elseBranch, start, previousEnd());
+	}
+
+	private Stmt forStatement() {
+		Position start = position();
+		advanced();
+
+		open(LPAREN, "Expected '(' after 'for'");
+
+		Stmt initializer = null;
+
+		if(current == VAR || current == NUM || current == STRING || current == CHAR || current == BOOLEAN) {
+			initializer = variable();
+		} else if(current != SEMICOLON) {
+			initializer = new Stmt.Expression(expression());
+		}
+
+		consume(SEMICOLON, "Expected ';' after loop initializer");
+
+		Expr condition = null;
+
+		if(current != SEMICOLON) {
+			condition = expression();
+		}
+
+		consume(SEMICOLON, "Expected ';' after loop condition");
+
+		Expr increment = null;
+
+		if(current != RPAREN) {
+			increment = expression();
+		}
+
+		close(RPAREN, "Expected ')' after for clauses");
+
+		List<Stmt> body = body();
+
+		return new Stmt.For(initializer, condition, increment, body, start, previousEnd());
+	}
+
+	//switch(value) { case label: ... default: ... } runs from the matching label to the end of the body or a break, like java
+	private Stmt switchStatement() {
+		Position start = position();
+		advanced();
+
+		Expr value = expression();
+
+		skipNewlines();
+		consume(LBRACE, "Expected '{' before switch body");
+
+		List<Expr> labels = new ArrayList<>();
+		List<Integer> entries = new ArrayList<>();
+		int fallback = -1;
+		List<Stmt> body = new ArrayList<>();
+
+		skipTerminators();
+
+		while(current != RBRACE && current != EOF) {
+			if(current == CASE) {
+				advanced();
+				labels.add(expression());
+				entries.add(body.size());
+				consume(COLON, "Expected ':' after case label");
+			} else if(current == DEFAULT) {
+				if(fallback >= 0) {
+					throw error("Switch already has a default");
+				}
+
+				advanced();
+				fallback = body.size();
+				consume(COLON, "Expected ':' after 'default'");
+			} else if(labels.isEmpty() && fallback < 0) {
+				throw error("Expected 'case' or 'default'");
+			} else {
+				Stmt statement = declaration();
+
+				if(statement != null) {
+					body.add(statement);
+				}
+			}
+
+			skipTerminators();
+		}
+
+		consume(RBRACE, "Expected '}' after switch body");
+
+		int[] starts = new int[entries.size()];
+
+		for(int i = 0; i < starts.length; i++) {
+			starts[i] = entries.get(i);
+		}
+
+		return new Stmt.Switch(value, labels, starts, fallback, body, start, previousEnd());
+	}
+
+	private Stmt.Method method() {
+		Position start = position();
+		advanced();
+
+		Token name = consume(IDENTIFIER, "Expected method name");
+		List<Token> parametters = new ArrayList<>();
+		List<TokenType> types = new ArrayList<>();
+
+		parametters(parametters, types);
+
+		List<Stmt> body = block();
+
+		return new Stmt.Method(name, parametters, types, body, start, previousEnd());
+	}
+
+	private Stmt.Init init() {
+		Position start = position();
+		advanced();
+
+		Token name = null;
+
+		if(current == IDENTIFIER) {
+			name = currentToken();
+			advanced();
+		}
+
+		List<Token> parametters = new ArrayList<>();
+		List<TokenType> types = new ArrayList<>();
+
+		parametters(parametters, types);
+
+		List<Stmt> body = block();
+
+		return new Stmt.Init(name, parametters, types, body, start, previousEnd());
+	}
+
+	private void parametters(List<Token> parametters, List<TokenType> types) {
+		open(LPAREN, "Expected '('");
+
+		if(current != RPAREN) {
+			do {
+				TokenType type = VAR;
+
+				if(current == VAR || current == NUM || current == STRING || current == CHAR || current == BOOLEAN) {
+					type = current;
+					advanced();
+
+					if(current == LBRACKET) {
+						advanced();
+						consume(RBRACKET, "Expected ']'");
+						type = VAR;
+					}
+				}
+
+				parametters.add(consume(IDENTIFIER, "Expected parametter name"));
+				types.add(type);
+			} while(match(COMMA));
+		}
+
+		close(RPAREN, "Expected ')' after parametters");
+	}
+
+	private Stmt classDeclaration() {
+		Position start = position();
+		advanced();
+
+		Token name = consume(IDENTIFIER, "Expected class name");
+		List<Expr.AccessNode> supClass = new ArrayList<>();
+
+		if(current == LPAREN) {
+			open(LPAREN, "Expected '('");
+
+			if(current != RPAREN) {
+				do {
+					supClass.add(new Expr.AccessNode(consume(IDENTIFIER, "Expected super class name")));
+				} while(match(COMMA));
+			}
+
+			close(RPAREN, "Expected ')' after super classes");
+		}
+
+		skipNewlines();
+		consume(LBRACE, "Expected '{' before class body");
+
+		Stmt.Init constructor = null;
+		List<Stmt.Method> methods = new ArrayList<>();
+
+		skipTerminators();
+
+		while(current != RBRACE && current != EOF) {
+			if(current == METHOD) {
+				methods.add(method());
+			} else if(current == INIT) {
+				if(constructor != null) {
+					throw error("Class '" + name.literal + "' already has an init");
+				}
+
+				constructor = init();
+			} else {
+				throw error("Expected 'method' or 'init' in class body");
+			}
+
+			skipTerminators();
+		}
+
+		consume(RBRACE, "Expected '}' after class body");
+
+		return new Stmt.Class(name, supClass, constructor, methods, start, previousEnd());
+	}
+
+	private Stmt enumDeclaration() {
+		Position start = position();
 		advanced();
+
+		Token name = null;
+
+		if(current == IDENTIFIER) {
+			name = currentToken();
+			advanced();
+		}
+
+		skipNewlines();
+		open(LBRACE, "Expected '{' before enum values");
+
+		List<Token> values = new ArrayList<>();
+
+		if(current != RBRACE) {
+			do {
+				if(current == RBRACE) {
+					break;
+				}
+
+				values.add(consume(IDENTIFIER, "Expected enum value"));
+			} while(match(COMMA));
+		}
+
+		close(RBRACE, "Expected '}' after enum values");
+
+		return new Stmt.Enum(name, values, start, previousEnd());
+	}
+
+	private List<Stmt> body() {
+		skipNewlines();
+
+		if(current == LBRACE) {
+			return block();
+		}
+
+		List<Stmt> statements = new ArrayList<>();
+		statements.add(statement());
+
+		return statements;
+	}
+
+	private List<Stmt> block() {
+		consume(LBRACE, "Expected '{'");
+
+		List<Stmt> statements = new ArrayList<>();
+
+		skipTerminators();
+
+		while(current != RBRACE && current != EOF) {
+			Stmt statement = declaration();
+
+			if(statement != null) {
+				statements.add(statement);
+			}
+
+			skipTerminators();
+		}
+
+		consume(RBRACE, "Expected '}'");
+
+		return statements;
+	}
+
+	Expr expression() {
+		return expression(ASSIGNMENT);
+	}
+
+	private Expr expression(int precedence) {
+		Expr left = prefix();
+
+		while(PRECEDENCE[current.ordinal()] >= precedence) {
+			left = infix(left);
+		}
+
+		return left;
+	}
+
+	private Expr prefix() {
+		skipNewlines();
+
+		Token token = currentToken();
+
+		switch(current) {
+			case NUMBER:
+				advanced();
+				return new Expr.NumberNode(token);
+			case STRINGL:
+				advanced();
+				return new Expr.StringNode(token);
+			case TRUE:
+				advanced();
+				return new Expr.LiteralNode(true, token.start, token.end);
+			case FALSE:
+				advanced();
+				return new Expr.LiteralNode(false, token.start, token.end);
+			case IDENTIFIER:
+				advanced();
+				return new Expr.AccessNode(token);
+			case THIS:
+				advanced();
+				return new Expr.ThisNode(token);
+			case SUPER:
+				advanced();
+
+				if(match(DOT)) {
+					return new Expr.SuperNode(token, consume(IDENTIFIER, "Expected super class method name"));
+				}
+
+				return new Expr.SuperNode(token, null);
+			case LPAREN:
+				open(LPAREN, "Expected '('");
+
+				Expr expression = expression();
+
+				close(RPAREN, "Expected ')'");
+				return expression;
+			case LBRACE:
+				return list(LBRACE, RBRACE);
+			case LBRACKET:
+				return list(LBRACKET, RBRACKET);
+			case NOT:
+			case MINUS:
+				advanced();
+				return new Expr.UnaryOpNode(token, expression(UNARY));
+			case INCREMENT:
+			case DECREMENT:
+				advanced();
+				return increment(expression(UNARY), token, false);
+			default:
+				throw error("Expected expression");
+		}
+	}
+
+	private Expr infix(Expr left) {
+		Token operator = currentToken();
+		int precedence = PRECEDENCE[current.ordinal()];
+
+		switch(current) {
+			case EQUAL:
+				advanced();
+				return assignment(left, operator, expression(ASSIGNMENT));
+			case PLUSEQUAL:
+			case MINUSEQUAL:
+			case MULEQUAL:
+			case DIVEQUAL:
+			case MODEQUAL:
+				advanced();
+				return update(left, operator, new Token(arithmetic(operator.type), null, operator.start, operator.end), expression(ASSIGNMENT), false);
+			case LPAREN:
+				open(LPAREN, "Expected '('");
+
+				List<Expr> arguments = new ArrayList<>();
+
+				if(current != RPAREN) {
+					do {
+						arguments.add(expression());
+					} while(match(COMMA));
+				}
+
+				Token rparen = currentToken();
+				close(RPAREN, "Expected ')' after arguments");
+
+				return new Expr.CallNode(left, operator, arguments, rparen);
+			case DOT:
+				advanced();
+				return new Expr.GetNode(left, consume(IDENTIFIER, "Expected property name after '.'"));
+			case INCREMENT:
+			case DECREMENT:
+				advanced();
+				return increment(left, operator, true);
+			case TYPE:
+				advanced();
+
+				Token type = currentToken();
+
+				if(current == VAR || current == NUM || current == STRING || current == CHAR || current == BOOLEAN) {
+					advanced();
+					return new Expr.BinaryOpNode(left, operator, new Expr.LiteralNode(type.type, type.start, type.end));
+				}
+
+				return new Expr.BinaryOpNode(left, operator, expression(precedence + 1));
+			default:
+				advanced();
+				return new Expr.BinaryOpNode(left, operator, expression(precedence + 1));
+		}
+	}
+
+	private Expr assignment(Expr target, Token operator, Expr value) {
+		if(target instanceof Expr.AccessNode) {
+			return new Expr.AssignNode(((Expr.AccessNode) target).token, value);
+		}
+
+		if(target instanceof Expr.GetNode) {
+			Expr.GetNode get = (Expr.GetNode) target;
+
+			return new Expr.SetNode(get.object, get.token, value);
+		}
+
+		InvalidSyntaxError targetError = new InvalidSyntaxError(target.start, operator.end, "Invalid assignment target");
+		throw new ParseError();
+	}
+
+	//x op= v assigns x op v, the object of obj.f op= v is evaluated once
+	private Expr update(Expr target, Token operator, Token arithmetic, Expr value, boolean postfix) {
+		if(target instanceof Expr.AccessNode) {
+			return new Expr.AssignNode(((Expr.AccessNode) target).token, new Expr.BinaryOpNode(target, arithmetic, value), postfix);
+		}
+
+		if(target instanceof Expr.GetNode) {
+			Expr.GetNode get = (Expr.GetNode) target;
+
+			return new Expr.SetNode(get.object, get.token, arithmetic, value, postfix);
+		}
+
+		InvalidSyntaxError targetError = new InvalidSyntaxError(target.start, operator.end, "Invalid assignment target");
+		throw new ParseError();
+	}
+
+	//++x and --x are x += 1 and x -= 1, x++ and x-- do the same but evaluate to x before the update
+	private Expr increment(Expr target, Token operator, boolean postfix) {
+		TokenType type = operator.type == INCREMENT ? PLUS : MINUS;
+		Token one = new Token(NUMBER, 1L, operator.start, operator.end);
+
+		return update(target, operator, new Token(type, null, operator.start, operator.end), new Expr.NumberNode(one), postfix);
+	}
+
+	private static TokenType arithmetic(TokenType type) {
+		switch(type) {
+			case PLUSEQUAL:
+				return PLUS;
+			case MINUSEQUAL:
+				return MINUS;
+			case MULEQUAL:
+				return MUL;
+			case DIVEQUAL:
+				return DIV;
+			default:
+				return MOD;
+		}
+	}
+
+	private Expr list(TokenType open, TokenType close) {
+		Position start = position();
+		open(open, "Expected list");
+
+		List<Expr> elements = new ArrayList<>();
+
+		if(current != close) {
+			do {
+				if(current == close) {
+					break;
+				}
+
+				elements.add(expression());
+			} while(match(COMMA));
+		}
+
+		close(close, "Expected end of list");
+
+		return new Expr.ListNode(elements, start, previousEnd());
 	}
 
 	private void advanced() {
+		this.previous = this.tokenIdx;
 		this.tokenIdx++;
-		updateCurrentToken();
+		this.current = tokens.type(this.tokenIdx);
+
+		//line breaks only end statements outside of brackets
+		while(this.depth > 0 && this.current == NEWLINE) {
+			this.tokenIdx++;
+			this.current = tokens.type(this.tokenIdx);
+		}
+	}
+
+	private void jump(int idx) {
+		this.tokenIdx = idx;
+		this.current = tokens.type(idx);
+	}
+
+	private int nextSignificant() {
+		int idx = this.tokenIdx;
+
+		while(tokens.type(idx) == NEWLINE) {
+			idx++;
+		}
+
+		return idx;
+	}
+
+	private boolean match(TokenType type) {
+		if(current == type) {
+			advanced();
+			return true;
+		}
+
+		return false;
 	}
 
-	private void reverse(int amount) {
-		this.amount = amount == null ? 1 : amount;
-		this.tokenIdx -= amount;
-		updateCurrentToken();
+	private Token consume(TokenType type, String message) {
+		if(current == type) {
+			Token token = currentToken();
+			advanced();
+
+			return token;
+		}
+
+		throw error(message);
+	}
+
+	private void open(TokenType type, String message) {
+		if(current != type) {
+			throw error(message);
+		}
+
+		depth++;
+		advanced();
+	}
+
+	private void close(TokenType type, String message) {
+		if(current != type) {
+			throw error(message);
+		}
+
+		depth--;
+		advanced();
+	}
+
+	private boolean atEnd() {
+		return current == NEWLINE || current == SEMICOLON || current == RBRACE || current == EOF;
+	}
+
+	private void endStatement() {
+		if(current == NEWLINE || current == SEMICOLON) {
+			advanced();
+		} else if(current != RBRACE && current != EOF) {
+			throw error("Expected ';' or new line");
+		}
 	}
 
-	private void updateCurrentToken() {
-		if(this.tokenIdx >= 0 && this.tokenIdx <= tokens.size()) {
-			this.currentToken = tokens.get(this.tokenIdx);
-		} else {
-			this.currentToken = null;
+	private void skipNewlines() {
+		while(current == NEWLINE) {
+			advanced();
 		}
 	}
+
+	private void skipTerminators() {
+		while(current == NEWLINE || current == SEMICOLON) {
+			advanced();
+		}
+	}
+
+	private void synchronize() {
+		this.depth = 0;
+
+		while(current != EOF) {
+			if(current == NEWLINE || current == SEMICOLON) {
+				skipTerminators();
+				return;
+			}
+
+			advanced();
+		}
+	}
+
+	private ParseError error(String message) {
+		InvalidSyntaxError syntaxError = new InvalidSyntaxError(position(), new Position(tokens.source, tokens.end(tokenIdx)), message);
+
+		return new ParseError();
+	}
+
+	private Position position() {
+		return new Position(tokens.source, tokens.start(this.tokenIdx));
+	}
+
+	private Position previousEnd() {
+		return new Position(tokens.source, tokens.end(this.previous));
+	}
+
+	private Token currentToken() {
+		return tokens.token(this.tokenIdx);
+	}
 }
\ No newline at end of file
@@ -1,36 +1,21 @@
 package inaf;
 
 class Position {
-	public int idx;
-	public int ln;
-	public int col;
+	public final int idx;
 	public final String fn;
-	public final String ftxt;
+	public final Source source;
 
-	Position(int idx, int ln, int col, String fn, String ftxt) {
+	Position(Source source, int idx) {
 		this.idx = idx;
-		this.ln = ln;
-		this.col = col;
-		this.fn = fn;
-		this.ftxt = ftxt;
+		this.fn = source.fn;
+		this.source = source;
 	}
 
-	public void advanced(char current) {
-		this.idx += 1;
-		this.col += 1;
-
-		if(current == '\n') {
-			this.ln += 1;
-			this.col = 0;
-		}
-	}
-
-	public void advanced() {
-		this.idx += 1;
-		this.col += 1;
+	public int ln() {
+		return source.line(idx);
 	}
 
-	public Position copy() {
-		return this;
+	public int col() {
+		return source.column(idx);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,867 @@
+package inaf;
+
+import static inaf.TokenType.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+	private static class Local {
+		final Stmt owner;
+		final int slot;
+		final TokenType type;
+		boolean defined;
+		//assigned from a nested method, so no loop of the declaring frame can treat it as invariant
+		boolean captured;
+
+		Local(Stmt owner, int slot, TokenType type, boolean defined) {
+			this.owner = owner;
+			this.slot = slot;
+			this.type = type;
+			this.defined = defined;
+		}
+	}
+
+	//a loop of the current frame, the locals written inside it decide what can be computed once before it starts
+	private static class Loop {
+		final Stmt owner;
+		final Map<Local, Integer> writes = new HashMap<>();
+		//num expressions that cannot fail, children before their parents
+		final List<Expr> candidates = new ArrayList<>();
+
+		Loop(Stmt owner) {
+			this.owner = owner;
+		}
+	}
+
+	//one frame per method body, blocks inside it only narrow which slots are visible
+	private static class Frame {
+		final Frame enclosing;
+		final List<Map<String, Local>> scopes = new ArrayList<>();
+		int size;
+		final List<Loop> loops = new ArrayList<>();
+		final List<Loop> active = new ArrayList<>();
+		//switch statements being resolved, a break may leave them but a continue needs a loop
+		int switches;
+		//the num locals of this frame each candidate reads
+		final Map<Expr, List<Local>> reads = new HashMap<>();
+
+		Frame(Frame enclosing) {
+			this.enclosing = enclosing;
+		}
+	}
+
+	//the key of a case label that is not a constant
+	private static final Object NOT_CONSTANT = new Object();
+
+	private Frame frame;
+	private int depth;
+
+	//returns the number of slots the top level frame needs
+	int resolve(List<Stmt> statements) {
+		frame = new Frame(null);
+		beginScope();
+
+		//every top level name is visible from every method, whatever the order,
+		//but top level code itself still has to declare a variable before reading it
+		for(Stmt statement : statements) {
+			hoist(statement, true);
+		}
+
+		resolve(statements, false);
+		loops();
+		int size = frame.size;
+		frame = null;
+
+		return size;
+	}
+
+	private void resolve(List<? extends Stmt> statements, boolean scoped) {
+		if(statements == null) {
+			return;
+		}
+
+		if(scoped) {
+			beginScope();
+
+			for(Stmt statement : statements) {
+				hoist(statement, false);
+			}
+		}
+
+		for(Stmt statement : statements) {
+			resolve(statement);
+		}
+
+		if(scoped) {
+			endScope();
+		}
+	}
+
+	//true when the expression always yields a num, so it can be evaluated without boxing
+	static boolean numeric(Expr expr) {
+		if(expr instanceof Expr.NumberNode) {
+			return true;
+		} else if(expr instanceof Expr.AccessNode) {
+			return ((Expr.AccessNode) expr).type == NUM;
+		} else if(expr instanceof Expr.AssignNode) {
+			return ((Expr.AssignNode) expr).type == NUM;
+		} else if(expr instanceof Expr.BinaryOpNode) {
+			Expr.BinaryOpNode binary = (Expr.BinaryOpNode) expr;
+
+			return binary.numeric && arithmetic(binary.operator.type);
+		} else if(expr instanceof Expr.UnaryOpNode) {
+			Expr.UnaryOpNode unary = (Expr.UnaryOpNode) expr;
+
+			return unary.numeric && unary.operator.type == MINUS;
+		}
+
+		return false;
+	}
+
+	static boolean arithmetic(TokenType type) {
+		return type == PLUS || type == MINUS || type == MUL || type == DIV || type == MOD;
+	}
+
+	private void resolve(Stmt statement) {
+		if(statement != null) {
+			statement.accept(this);
+		}
+	}
+
+	private void resolve(Expr expression) {
+		if(expression != null) {
+			expression.accept(this);
+		}
+	}
+
+	private void hoist(Stmt statement, boolean variables) {
+		if(statement instanceof Stmt.Method) {
+			Stmt.Method method = (Stmt.Method) statement;
+			method.slot = predeclare(statement, method.name, METHOD, true);
+		} else if(statement instanceof Stmt.Class) {
+			Stmt.Class klass = (Stmt.Class) statement;
+			klass.slot = predeclare(statement, klass.name, CLASS, true);
+		} else if(statement instanceof Stmt.Enum) {
+			Stmt.Enum enumStmt = (Stmt.Enum) statement;
+
+			if(enumStmt.name != null) {
+				enumStmt.slot = predeclare(statement, enumStmt.name, ENUM, true);
+			} else {
+				enumStmt.slot = frame.size;
+
+				for(Token value : enumStmt.enumValue) {
+					predeclare(statement, value, ENUM, true);
+				}
+			}
+		} else if(variables && statement instanceof Stmt.Var) {
+			Stmt.Var var = (Stmt.Var) statement;
+			var.slot = predeclare(statement, var.name, VAR, false);
+		} else if(variables && statement instanceof Stmt.Const) {
+			Stmt.Const constant = (Stmt.Const) statement;
+			constant.slot = predeclare(statement, constant.name, CONST, false);
+		} else if(variables && statement instanceof Stmt.String) {
+			Stmt.String string = (Stmt.String) statement;
+			string.slot = predeclare(statement, string.name, STRING, false);
+		} else if(variables && statement instanceof Stmt.Num) {
+			Stmt.Num num = (Stmt.Num) statement;
+			num.slot = predeclare(statement, num.name, NUM, false);
+		} else if(variables && statement instanceof Stmt.Char) {
+			Stmt.Char character = (Stmt.Char) statement;
+			character.slot = predeclare(statement, character.name, CHAR, false);
+		} else if(variables && statement instanceof Stmt.Boolean) {
+			Stmt.Boolean bool = (Stmt.Boolean) statement;
+			bool.slot = predeclare(statement, bool.name, BOOLEAN, false);
+		}
+	}
+
+	//duplicates are left for declare() to report once the statement is reached
+	private int predeclare(Stmt owner, Token name, TokenType type, boolean defined) {
+		Map<String, Local> scope = frame.scopes.get(frame.scopes.size() - 1);
+
+		if(scope.containsKey(name.literal)) {
+			return -1;
+		}
+
+		Local local = new Local(owner, frame.size++, type, defined);
+		scope.put((String) name.literal, local);
+
+		return local.slot;
+	}
+
+	private int declare(Stmt owner, Token name, TokenType type) {
+		Map<String, Local> scope = frame.scopes.get(frame.scopes.size() - 1);
+		Local local = scope.get(name.literal);
+
+		if(local != null) {
+			if(local.owner == owner && owner != null) {
+				return local.slot;
+			}
+
+			InvalidSyntaxError duplicate = new InvalidSyntaxError(name.start, name.end, "'" + name.literal + "' is already declared in this scope");
+
+			return local.slot;
+		}
+
+		local = new Local(owner, frame.size++, type, false);
+		scope.put((String) name.literal, local);
+
+		return local.slot;
+	}
+
+	private void define(Token name) {
+		Local local = frame.scopes.get(frame.scopes.size() - 1).get(name.literal);
+
+		if(local != null) {
+			local.defined = true;
+		}
+	}
+
+	private Local lookup(Token name) {
+		depth = 0;
+
+		for(Frame current = frame; current != null; current = current.enclosing) {
+			for(int i = current.scopes.size() - 1; i >= 0; i--) {
+				Local local = current.scopes.get(i).get(name.literal);
+
+				if(local != null) {
+					return local;
+				}
+			}
+
+			depth++;
+		}
+
+		depth = -1;
+
+		return null;
+	}
+
+	private void beginScope() {
+		frame.scopes.add(new HashMap<>());
+	}
+
+	private void endScope() {
+		frame.scopes.remove(frame.scopes.size() - 1);
+	}
+
+	private int function(List<Token> parametters, List<TokenType> types, List<Stmt> body) {
+		frame = new Frame(frame);
+		beginScope();
+
+		for(int i = 0; i < parametters.size(); i++) {
+			declare(null, parametters.get(i), types.get(i));
+			define(parametters.get(i));
+		}
+
+		resolve(body, true);
+		endScope();
+		loops();
+
+		int size = frame.size;
+		frame = frame.enclosing;
+
+		return size;
+	}
+
+	private int variable(Stmt owner, Token name, TokenType type, Expr initializer) {
+		int slot = declare(owner, name, type);
+		resolve(initializer);
+		define(name);
+		write(frame.scopes.get(frame.scopes.size() - 1).get(name.literal));
+
+		return slot;
+	}
+
+	private void enter(Stmt owner) {
+		Loop loop = new Loop(owner);
+		frame.loops.add(loop);
+		frame.active.add(loop);
+	}
+
+	private void exit() {
+		frame.active.remove(frame.active.size() - 1);
+	}
+
+	private void write(Local local) {
+		for(Loop loop : frame.active) {
+			loop.writes.merge(local, 1, Integer::sum);
+		}
+	}
+
+	private void candidate(Expr expr, List<Local> reads) {
+		frame.reads.put(expr, reads);
+
+		if(expr instanceof Expr.BinaryOpNode || expr instanceof Expr.UnaryOpNode) {
+			for(Loop loop : frame.active) {
+				loop.candidates.add(expr);
+			}
+		}
+	}
+
+	//a num expression over locals of this frame that the loop never writes
+	private boolean invariant(Expr expr, Loop loop) {
+		if(expr instanceof Expr.NumberNode) {
+			return true;
+		}
+
+		List<Local> reads = frame.reads.get(expr);
+
+		if(reads == null) {
+			return false;
+		}
+
+		for(Local local : reads) {
+			if(local.captured || loop.writes.containsKey(local)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	//runs once the whole frame is resolved, outer loops first so an expression moves as far out as it can
+	private void loops() {
+		Set<Expr> covered = new HashSet<>();
+
+		for(Loop loop : frame.loops) {
+			List<Expr> invariants = new ArrayList<>();
+
+			for(int i = loop.candidates.size() - 1; i >= 0; i--) {
+				Expr candidate = loop.candidates.get(i);
+
+				if(!covered.contains(candidate) && invariant(candidate, loop)) {
+					hoist(candidate, frame.size++);
+					cover(candidate, covered);
+					invariants.add(candidate);
+				}
+			}
+
+			//a reused loop may sit at other slots now, so code compiled for the old layout is dropped
+			if(loop.owner instanceof Stmt.For) {
+				Stmt.For forStmt = (Stmt.For) loop.owner;
+				forStmt.invariants = invariants;
+				forStmt.tier.reset();
+				counted(forStmt, loop);
+			} else if(loop.owner instanceof Stmt.While) {
+				((Stmt.While) loop.owner).invariants = invariants;
+				((Stmt.While) loop.owner).tier.reset();
+			} else {
+				((Stmt.Do) loop.owner).invariants = invariants;
+				((Stmt.Do) loop.owner).tier.reset();
+			}
+		}
+	}
+
+	private static void hoist(Expr expr, int slot) {
+		if(expr instanceof Expr.BinaryOpNode) {
+			((Expr.BinaryOpNode) expr).hoisted = slot;
+		} else {
+			((Expr.UnaryOpNode) expr).hoisted = slot;
+		}
+	}
+
+	private static void cover(Expr expr, Set<Expr> covered) {
+		covered.add(expr);
+
+		if(expr instanceof Expr.BinaryOpNode) {
+			cover(((Expr.BinaryOpNode) expr).left, covered);
+			cover(((Expr.BinaryOpNode) expr).right, covered);
+		} else if(expr instanceof Expr.UnaryOpNode) {
+			cover(((Expr.UnaryOpNode) expr).node, covered);
+		}
+	}
+
+	//for(...; i < limit; i++) where only the increment writes i and the limit never changes
+	private void counted(Stmt.For stmt, Loop loop) {
+		if(!(stmt.increment instanceof Expr.AssignNode) || !(stmt.condition instanceof Expr.BinaryOpNode)) {
+			return;
+		}
+
+		Expr.AssignNode increment = (Expr.AssignNode) stmt.increment;
+		Expr.BinaryOpNode test = (Expr.BinaryOpNode) stmt.condition;
+
+		if(increment.type != NUM || increment.depth != 0 || !(increment.value instanceof Expr.BinaryOpNode)) {
+			return;
+		}
+
+		Expr.BinaryOpNode step = (Expr.BinaryOpNode) increment.value;
+		TokenType compare = test.operator.type;
+
+		if(step.operator.type != PLUS && step.operator.type != MINUS || !same(step.left, increment) || !(step.right instanceof Expr.NumberNode)) {
+			return;
+		}
+
+		if(compare != LESS && compare != LTE && compare != GREATER && compare != GTE || !same(test.left, increment) || !invariant(test.right, loop)) {
+			return;
+		}
+
+		Local counter = null;
+
+		for(Local local : loop.writes.keySet()) {
+			if(local.slot == increment.slot && local.type == NUM) {
+				counter = local;
+			}
+		}
+
+		if(counter == null || counter.captured || loop.writes.get(counter) != 1) {
+			return;
+		}
+
+		double value = ((Expr.NumberNode) step.right).value;
+		stmt.counter = increment.slot;
+		stmt.step = step.operator.type == PLUS ? value : -value;
+		stmt.limit = frame.size++;
+	}
+
+	private static boolean same(Expr expr, Expr.AssignNode assign) {
+		if(!(expr instanceof Expr.AccessNode)) {
+			return false;
+		}
+
+		Expr.AccessNode access = (Expr.AccessNode) expr;
+
+		return access.depth == 0 && access.slot == assign.slot;
+	}
+
+	@Override
+	public Void visitNumberNode(Expr.NumberNode expr) {
+		return null;
+	}
+
+	@Override
+	public Void visitStringNode(Expr.StringNode expr) {
+		return null;
+	}
+
+	@Override
+	public Void visitLiteralNode(Expr.LiteralNode expr) {
+		return null;
+	}
+
+	@Override
+	public Void visitListNode(Expr.ListNode expr) {
+		for(Expr element : expr.elementsNode) {
+			resolve(element);
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitAssignNode(Expr.AssignNode expr) {
+		resolve(expr.value);
+
+		Local local = lookup(expr.token);
+
+		if(local == null) {
+			expr.depth = -1;
+			expr.slot = -1;
+			expr.type = VAR;
+
+			return null;
+		}
+
+		if(local.type == CONST || local.type == METHOD || local.type == CLASS || local.type == ENUM) {
+			InvalidSyntaxError constant = new InvalidSyntaxError(expr.token.start, expr.token.end, "Cannot assign to '" + expr.token.literal + "'");
+		}
+
+		expr.depth = depth;
+		expr.slot = local.slot;
+		expr.type = local.type;
+
+		if(depth == 0) {
+			write(local);
+		} else {
+			local.captured = true;
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitAccessNode(Expr.AccessNode expr) {
+		Local local = lookup(expr.token);
+
+		if(local == null) {
+			expr.depth = -1;
+			expr.slot = -1;
+			expr.type = VAR;
+
+			return null;
+		}
+
+		if(!local.defined && depth == 0) {
+			InvalidSyntaxError initializer = new InvalidSyntaxError(expr.token.start, expr.token.end, "Cannot read '" + expr.token.literal + "' in its own initializer");
+		}
+
+		expr.depth = depth;
+		expr.slot = local.slot;
+		expr.type = local.type;
+
+		if(!frame.active.isEmpty() && depth == 0 && local.type == NUM) {
+			candidate(expr, Collections.singletonList(local));
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitBinaryOpNode(Expr.BinaryOpNode expr) {
+		resolve(expr.left);
+		resolve(expr.right);
+		expr.numeric = numeric(expr.left) && numeric(expr.right);
+
+		if(!frame.active.isEmpty() && expr.numeric && arithmetic(expr.operator.type)) {
+			List<Local> left = reads(expr.left);
+			List<Local> right = reads(expr.right);
+			//a division is only safe to compute early when it cannot divide by zero
+			boolean safe = expr.operator.type != DIV && expr.operator.type != MOD || expr.right instanceof Expr.NumberNode && ((Expr.NumberNode) expr.right).value != 0;
+
+			if(left != null && right != null && safe) {
+				List<Local> reads = new ArrayList<>(left);
+				reads.addAll(right);
+				candidate(expr, reads);
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitUnaryOpNode(Expr.UnaryOpNode expr) {
+		resolve(expr.node);
+		expr.numeric = numeric(expr.node);
+
+		if(!frame.active.isEmpty() && expr.numeric && expr.operator.type == MINUS) {
+			List<Local> reads = reads(expr.node);
+
+			if(reads != null) {
+				candidate(expr, reads);
+			}
+		}
+
+		return null;
+	}
+
+	//null when the expression is not a candidate
+	private List<Local> reads(Expr expr) {
+		if(expr instanceof Expr.NumberNode) {
+			return Collections.emptyList();
+		}
+
+		return frame.reads.get(expr);
+	}
+
+	@Override
+	public Void visitCallNode(Expr.CallNode expr) {
+		resolve(expr.callee);
+
+		for(Expr argument : expr.arguments) {
+			resolve(argument);
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitGetNode(Expr.GetNode expr) {
+		resolve(expr.object);
+
+		return null;
+	}
+
+	@Override
+	public Void visitSetNode(Expr.SetNode expr) {
+		resolve(expr.value);
+		resolve(expr.object);
+
+		return null;
+	}
+
+	@Override
+	public Void visitThisNode(Expr.ThisNode expr) {
+		return null;
+	}
+
+	@Override
+	public Void visitSuperNode(Expr.SuperNode expr) {
+		return null;
+	}
+
+	@Override
+	public Void visitBlockStmt(Stmt.Block stmt) {
+		resolve(stmt.statements, true);
+
+		return null;
+	}
+
+	@Override
+	public Void visitExpressionStmt(Stmt.Expression stmt) {
+		resolve(stmt.expression);
+
+		return null;
+	}
+
+	@Override
+	public Void visitVarStmt(Stmt.Var stmt) {
+		stmt.slot = variable(stmt, stmt.name, VAR, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitConstStmt(Stmt.Const stmt) {
+		stmt.slot = variable(stmt, stmt.name, CONST, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitStringStmt(Stmt.String stmt) {
+		stmt.slot = variable(stmt, stmt.name, STRING, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitNumStmt(Stmt.Num stmt) {
+		stmt.slot = variable(stmt, stmt.name, NUM, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitCharStmt(Stmt.Char stmt) {
+		stmt.slot = variable(stmt, stmt.name, CHAR, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitBooleanStmt(Stmt.Boolean stmt) {
+		stmt.slot = variable(stmt, stmt.name, BOOLEAN, stmt.initializer);
+
+		return null;
+	}
+
+	@Override
+	public Void visitIfStmt(Stmt.If stmt) {
+		resolve(stmt.condition);
+		resolve(stmt.thenBranch, true);
+		resolve(stmt.elseBranch, true);
+
+		return null;
+	}
+
+	@Override
+	public Void visitForStmt(Stmt.For stmt) {
+		beginScope();
+		resolve(stmt.initializer);
+		enter(stmt);
+		resolve(stmt.condition);
+		resolve(stmt.increment);
+		resolve(stmt.body, true);
+		exit();
+		endScope();
+
+		return null;
+	}
+
+	@Override
+	public Void visitWhileStmt(Stmt.While stmt) {
+		enter(stmt);
+		resolve(stmt.condition);
+		resolve(stmt.body, true);
+		exit();
+
+		return null;
+	}
+
+	@Override
+	public Void visitDoStmt(Stmt.Do stmt) {
+		enter(stmt);
+		resolve(stmt.body, true);
+		resolve(stmt.condition);
+		exit();
+
+		return null;
+	}
+
+	@Override
+	public Void visitSwitchStmt(Stmt.Switch stmt) {
+		resolve(stmt.value);
+
+		List<Object> keys = new ArrayList<>(stmt.labels.size());
+		Set<Object> seen = new HashSet<>();
+
+		for(Expr label : stmt.labels) {
+			Object key = key(label);
+
+			if(key == NOT_CONSTANT) {
+				InvalidSyntaxError constant = new InvalidSyntaxError(label.start, label.end, "Case label must be a num, string, boolean or enum value");
+			} else if(!seen.add(key)) {
+				InvalidSyntaxError duplicate = new InvalidSyntaxError(label.start, label.end, "Duplicate case label");
+			}
+
+			keys.add(key);
+		}
+
+		frame.switches++;
+		resolve(stmt.body, true);
+		frame.switches--;
+		stmt.dispatch = new Dispatch(keys);
+
+		return null;
+	}
+
+	//what a case label matches, enum values become their ordinal so no label is ever evaluated
+	private Object key(Expr label) {
+		//-0 is the same label as 0, adding 0 turns one into the other
+		if(label instanceof Expr.NumberNode) {
+			return ((Expr.NumberNode) label).value + 0.0;
+		} else if(label instanceof Expr.UnaryOpNode && ((Expr.UnaryOpNode) label).operator.type == MINUS && ((Expr.UnaryOpNode) label).node instanceof Expr.NumberNode) {
+			return -((Expr.NumberNode) ((Expr.UnaryOpNode) label).node).value + 0.0;
+		} else if(label instanceof Expr.StringNode) {
+			return ((Expr.StringNode) label).token.literal;
+		} else if(label instanceof Expr.LiteralNode) {
+			return ((Expr.LiteralNode) label).value;
+		}
+
+		Token enumName;
+		Token valueName;
+
+		if(label instanceof Expr.AccessNode) {
+			enumName = null;
+			valueName = ((Expr.AccessNode) label).token;
+		} else if(label instanceof Expr.GetNode && ((Expr.GetNode) label).object instanceof Expr.AccessNode) {
+			enumName = ((Expr.AccessNode) ((Expr.GetNode) label).object).token;
+			valueName = ((Expr.GetNode) label).token;
+		} else {
+			return NOT_CONSTANT;
+		}
+
+		Local local = lookup(enumName != null ? enumName : valueName);
+
+		if(local == null || local.type != ENUM || !(local.owner instanceof Stmt.Enum)) {
+			return NOT_CONSTANT;
+		}
+
+		Stmt.Enum declaration = (Stmt.Enum) local.owner;
+
+		if((declaration.name == null) != (enumName == null)) {
+			return NOT_CONSTANT;
+		}
+
+		for(int i = 0; i < declaration.enumValue.size(); i++) {
+			if(declaration.enumValue.get(i).literal.equals(valueName.literal)) {
+				return new Dispatch.Ordinal(declaration, i);
+			}
+		}
+
+		return NOT_CONSTANT;
+	}
+
+	@Override
+	public Void visitMethodStmt(Stmt.Method stmt) {
+		stmt.slot = declare(stmt, stmt.name, METHOD);
+		define(stmt.name);
+		stmt.frameSize = function(stmt.parametters, stmt.types, stmt.body);
+
+		return null;
+	}
+
+	@Override
+	public Void visitInitStmt(Stmt.Init stmt) {
+		stmt.frameSize = function(stmt.parametters, stmt.types, stmt.body);
+
+		return null;
+	}
+
+	@Override
+	public Void visitClassStmt(Stmt.Class stmt) {
+		stmt.slot = declare(stmt, stmt.name, CLASS);
+		define(stmt.name);
+
+		for(Expr.AccessNode supClass : stmt.supClass) {
+			resolve(supClass);
+		}
+
+		resolve(stmt.constructor);
+
+		//methods of a class live on the class, not in the enclosing frame
+		for(Stmt.Method method : stmt.methods) {
+			method.slot = -1;
+			method.frameSize = function(method.parametters, method.types, method.body);
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitEnumStmt(Stmt.Enum stmt) {
+		if(stmt.name != null) {
+			stmt.slot = declare(stmt, stmt.name, ENUM);
+			define(stmt.name);
+
+			return null;
+		}
+
+		for(int i = 0; i < stmt.enumValue.size(); i++) {
+			int slot = declare(stmt, stmt.enumValue.get(i), ENUM);
+			define(stmt.enumValue.get(i));
+
+			if(i == 0) {
+				stmt.slot = slot;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitReturnStmt(Stmt.Return stmt) {
+		for(Expr value : stmt.value) {
+			resolve(value);
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitContinueStmt(Stmt.Continue stmt) {
+		if(frame.active.isEmpty()) {
+			InvalidSyntaxError outside = new InvalidSyntaxError(stmt.start, stmt.end, "'continue' outside of a loop");
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitBreakStmt(Stmt.Break stmt) {
+		if(frame.active.isEmpty() && frame.switches == 0) {
+			InvalidSyntaxError outside = new InvalidSyntaxError(stmt.start, stmt.end, "'break' outside of a loop");
+		}
+
+		return null;
+	}
+
+	@Override
+	public Void visitPrintStmt(Stmt.Print stmt) {
+		resolve(stmt.expression);
+
+		return null;
+	}
+
+	@Override
+	public Void visitInputStmt(Stmt.Input stmt) {
+		resolve(stmt.expression);
+
+		return null;
+	}
+}
\ No newline at end of file
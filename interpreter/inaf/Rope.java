@@ -0,0 +1,91 @@
+package inaf;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+//a string built by '+' that keeps its pieces until something reads the characters, so appending in a loop stays linear
+//string values are either a java String or a Rope, every check for a string value tests for CharSequence
+final class Rope implements CharSequence {
+	//shorter results are copied right away, a node would cost more than the copy
+	private static final int FLAT = 64;
+
+	private CharSequence left;
+	private CharSequence right;
+	private String flat;
+	private final int length;
+
+	private Rope(CharSequence left, CharSequence right) {
+		this.left = left;
+		this.right = right;
+		this.length = left.length() + right.length();
+	}
+
+	static CharSequence concat(CharSequence left, CharSequence right) {
+		if(left.length() == 0) {
+			return right;
+		}
+
+		if(right.length() == 0) {
+			return left;
+		}
+
+		if(left.length() + right.length() <= FLAT) {
+			return left.toString().concat(right.toString());
+		}
+
+		//a string longer than the jvm allows fails here instead of when it is flattened
+		if(left.length() + right.length() < 0) {
+			throw new OutOfMemoryError("String too long");
+		}
+
+		return new Rope(left, right);
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return toString().charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().substring(start, end);
+	}
+
+	//copies the pieces once, right to left with an explicit stack since a rope built by += is as deep as it is long
+	@Override
+	public String toString() {
+		if(flat != null) {
+			return flat;
+		}
+
+		char[] chars = new char[length];
+		int end = length;
+		Deque<CharSequence> pending = new ArrayDeque<>();
+		pending.push(this);
+
+		while(!pending.isEmpty()) {
+			CharSequence piece = pending.pop();
+
+			if(piece instanceof Rope && ((Rope) piece).flat == null) {
+				Rope rope = (Rope) piece;
+				pending.push(rope.left);
+				pending.push(rope.right);
+			} else {
+				String text = piece.toString();
+				end -= text.length();
+				text.getChars(0, text.length(), chars, end);
+			}
+		}
+
+		flat = new String(chars);
+		left = null;
+		right = null;
+
+		return flat;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,819 @@
+package inaf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class ScriptCache {
+	private static final int MAGIC = 0x494e4146;
+	//bump whenever the Stmt or Expr classes or the layout below change
+	private static final int FORMAT = 3;
+	private static final TokenType[] TYPES = TokenType.values();
+
+	private final Source source;
+	private final Path path;
+	private final byte[] hash;
+
+	ScriptCache(Source source) {
+		this.source = source;
+		this.path = Paths.get(source.fn + "c");
+		this.hash = hash(source);
+	}
+
+	List<Stmt> load() {
+		if(!Files.isRegularFile(path)) {
+			return null;
+		}
+
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if(buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+				return null;
+			}
+
+			Reader reader = new Reader(buffer, source);
+
+			if(!Inaf.VERSION.equals(reader.string()) || !Arrays.equals(hash, reader.bytes(hash.length))) {
+				return null;
+			}
+
+			return reader.read();
+		} catch(IOException | RuntimeException exception) {
+			//a damaged or foreign cache file is simply parsed again
+			return null;
+		}
+	}
+
+	void store(List<Stmt> statements) {
+		try {
+			Writer writer = new Writer();
+
+			for(Stmt statement : statements) {
+				writer.stmt(statement);
+			}
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT);
+			Writer.string(out, Inaf.VERSION);
+			out.write(hash);
+			writer.writeTo(out, statements.size());
+			out.flush();
+
+			Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+
+			try {
+				Files.write(temp, bytes.toByteArray());
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch(IOException exception) {
+			//the cache is only an optimization, a read-only directory just skips it
+		}
+	}
+
+	private static byte[] hash(Source source) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(source.buffer());
+
+			return digest.digest();
+		} catch(NoSuchAlgorithmException exception) {
+			throw new IllegalStateException(exception);
+		}
+	}
+
+	private static class Writer implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		private final DataOutputStream out = new DataOutputStream(body);
+		private final Map<String, Integer> strings = new HashMap<>();
+		private final List<String> table = new ArrayList<>();
+
+		void writeTo(DataOutputStream target, int count) throws IOException {
+			out.flush();
+
+			target.writeInt(table.size());
+
+			for(String value : table) {
+				string(target, value);
+			}
+
+			target.writeInt(count);
+			body.writeTo(target);
+		}
+
+		static void string(DataOutputStream target, String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+			target.writeInt(bytes.length);
+			target.write(bytes);
+		}
+
+		void stmt(Stmt statement) {
+			if(statement == null) {
+				write(0);
+			} else {
+				statement.accept(this);
+			}
+		}
+
+		void expr(Expr expression) {
+			if(expression == null) {
+				write(0);
+			} else {
+				expression.accept(this);
+			}
+		}
+
+		private void stmts(List<? extends Stmt> statements) {
+			if(statements == null) {
+				writeInt(-1);
+				return;
+			}
+
+			writeInt(statements.size());
+
+			for(Stmt statement : statements) {
+				stmt(statement);
+			}
+		}
+
+		private void exprs(List<? extends Expr> expressions) {
+			writeInt(expressions.size());
+
+			for(Expr expression : expressions) {
+				expr(expression);
+			}
+		}
+
+		private void tokens(List<Token> tokens) {
+			writeInt(tokens.size());
+
+			for(Token token : tokens) {
+				token(token);
+			}
+		}
+
+		private void token(Token token) {
+			if(token == null) {
+				write(0);
+				return;
+			}
+
+			write(1);
+			write(token.type.ordinal());
+			value(token.literal);
+			position(token.start);
+			position(token.end);
+		}
+
+		private void value(Object value) {
+			try {
+				if(value == null) {
+					out.write(0);
+				} else if(value instanceof String) {
+					out.write(1);
+					out.writeInt(intern((String) value));
+				} else if(value instanceof Long) {
+					out.write(2);
+					out.writeLong((Long) value);
+				} else if(value instanceof Double) {
+					out.write(3);
+					out.writeDouble((Double) value);
+				} else if(value instanceof java.lang.Boolean) {
+					out.write(4);
+					out.writeBoolean((java.lang.Boolean) value);
+				} else if(value instanceof TokenType) {
+					out.write(5);
+					out.write(((TokenType) value).ordinal());
+				} else {
+					throw new IllegalStateException("Cannot cache value " + value);
+				}
+			} catch(IOException exception) {
+				throw new IllegalStateException(exception);
+			}
+		}
+
+		private void position(Position position) {
+			if(position == null) {
+				writeInt(-1);
+			} else {
+				writeInt(position.idx);
+			}
+		}
+
+		private void span(Position start, Position end) {
+			position(start);
+			position(end);
+		}
+
+		private int intern(String value) {
+			Integer idx = strings.get(value);
+
+			if(idx == null) {
+				idx = table.size();
+				strings.put(value, idx);
+				table.add(value);
+			}
+
+			return idx;
+		}
+
+		private void write(int value) {
+			try {
+				out.write(value);
+			} catch(IOException exception) {
+				throw new IllegalStateException(exception);
+			}
+		}
+
+		private void writeInt(int value) {
+			try {
+				out.writeInt(value);
+			} catch(IOException exception) {
+				throw new IllegalStateException(exception);
+			}
+		}
+
+		@Override
+		public Void visitNumberNode(Expr.NumberNode expr) {
+			write(1);
+			token(expr.token);
+			return null;
+		}
+
+		@Override
+		public Void visitStringNode(Expr.StringNode expr) {
+			write(2);
+			token(expr.token);
+			return null;
+		}
+
+		@Override
+		public Void visitLiteralNode(Expr.LiteralNode expr) {
+			write(3);
+			value(expr.value);
+			span(expr.start, expr.end);
+			return null;
+		}
+
+		@Override
+		public Void visitListNode(Expr.ListNode expr) {
+			write(4);
+			exprs(expr.elementsNode);
+			span(expr.start, expr.end);
+			return null;
+		}
+
+		@Override
+		public Void visitAssignNode(Expr.AssignNode expr) {
+			write(5);
+			token(expr.token);
+			expr(expr.value);
+			write(expr.postfix ? 1 : 0);
+			return null;
+		}
+
+		@Override
+		public Void visitAccessNode(Expr.AccessNode expr) {
+			write(6);
+			token(expr.token);
+			return null;
+		}
+
+		@Override
+		public Void visitBinaryOpNode(Expr.BinaryOpNode expr) {
+			write(7);
+			expr(expr.left);
+			token(expr.operator);
+			expr(expr.right);
+			return null;
+		}
+
+		@Override
+		public Void visitUnaryOpNode(Expr.UnaryOpNode expr) {
+			write(8);
+			token(expr.operator);
+			expr(expr.node);
+			return null;
+		}
+
+		@Override
+		public Void visitCallNode(Expr.CallNode expr) {
+			write(9);
+			expr(expr.callee);
+			token(expr.lparen);
+			exprs(expr.arguments);
+			token(expr.rparen);
+			return null;
+		}
+
+		@Override
+		public Void visitGetNode(Expr.GetNode expr) {
+			write(10);
+			expr(expr.object);
+			token(expr.token);
+			return null;
+		}
+
+		@Override
+		public Void visitSetNode(Expr.SetNode expr) {
+			write(11);
+			expr(expr.object);
+			token(expr.token);
+			token(expr.update == null ? null : expr.update.operator);
+			expr(expr.value);
+			write(expr.postfix ? 1 : 0);
+			return null;
+		}
+
+		@Override
+		public Void visitThisNode(Expr.ThisNode expr) {
+			write(12);
+			token(expr.keyword);
+			return null;
+		}
+
+		@Override
+		public Void visitSuperNode(Expr.SuperNode expr) {
+			write(13);
+			token(expr.keyword);
+			token(expr.method);
+			return null;
+		}
+
+		@Override
+		public Void visitBlockStmt(Stmt.Block stmt) {
+			write(1);
+			stmts(stmt.statements);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+
+		@Override
+		public Void visitExpressionStmt(Stmt.Expression stmt) {
+			write(2);
+			expr(stmt.expression);
+			return null;
+		}
+
+		@Override
+		public Void visitVarStmt(Stmt.Var stmt) {
+			write(3);
+			token(stmt.name);
+			expr(stmt.initializer);
+			return null;
+		}
+
+		@Override
+		public Void visitConstStmt(Stmt.Const stmt) {
+			write(4);
+			token(stmt.name);
+			expr(stmt.initializer);
+			return null;
+		}
+
+		@Override
+		public Void visitStringStmt(Stmt.String stmt) {
+			write(5);
+			token(stmt.name);
+			expr(stmt.initializer);
+			return null;
+		}
+
+		@Override
+		public Void visitNumStmt(Stmt.Num stmt) {
+			write(6);
+			token(stmt.name);
+			expr(stmt.initializer);
+			return null;
+		}
+
+		@Override
+		public Void visitCharStmt(Stmt.Char stmt) {
+			write(7);
+			token(stmt.name);
+			expr(stmt.initializer);
+			return null;
+		}
+
+		@Override
+		public Void visitBooleanStmt(Stmt.Boolean stmt) {
+			write(8);
+			token(stmt.name);
+			expr(stmt.initializer);
+			return null;
+		}
+
+		@Override
+		public Void visitIfStmt(Stmt.If stmt) {
+			write(9);
+			expr(stmt.condition);
+			stmts(stmt.thenBranch);
+			stmts(stmt.elseBranch);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+
+		@Override
+		public Void visitForStmt(Stmt.For stmt) {
+			write(10);
+			stmt(stmt.initializer);
+			expr(stmt.condition);
+			expr(stmt.increment);
+			stmts(stmt.body);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+
+		@Override
+		public Void visitWhileStmt(Stmt.While stmt) {
+			write(11);
+			expr(stmt.condition);
+			stmts(stmt.body);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+
+		@Override
+		public Void visitDoStmt(Stmt.Do stmt) {
+			write(12);
+			expr(stmt.condition);
+			stmts(stmt.body);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+
+		@Override
+		public Void visitSwitchStmt(Stmt.Switch stmt) {
+			write(22);
+			expr(stmt.value);
+			exprs(stmt.labels);
+
+			for(int entry : stmt.entries) {
+				writeInt(entry);
+			}
+
+			writeInt(stmt.fallback);
+			stmts(stmt.body);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+
+		@Override
+		public Void visitMethodStmt(Stmt.Method stmt) {
+			write(13);
+			token(stmt.name);
+			tokens(stmt.parametters);
+			types(stmt.types);
+			stmts(stmt.body);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+
+		@Override
+		public Void visitInitStmt(Stmt.Init stmt) {
+			write(14);
+			token(stmt.name);
+			tokens(stmt.parametters);
+			types(stmt.types);
+			stmts(stmt.body);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+
+		private void types(List<TokenType> types) {
+			writeInt(types.size());
+
+			for(TokenType type : types) {
+				write(type.ordinal());
+			}
+		}
+
+		@Override
+		public Void visitClassStmt(Stmt.Class stmt) {
+			write(15);
+			token(stmt.name);
+			exprs(stmt.supClass);
+			stmt(stmt.constructor);
+			stmts(stmt.methods);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+
+		@Override
+		public Void visitEnumStmt(Stmt.Enum stmt) {
+			write(16);
+			token(stmt.name);
+			tokens(stmt.enumValue);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+
+		@Override
+		public Void visitReturnStmt(Stmt.Return stmt) {
+			write(17);
+			token(stmt.name);
+			exprs(stmt.value);
+			return null;
+		}
+
+		@Override
+		public Void visitContinueStmt(Stmt.Continue stmt) {
+			write(18);
+			token(stmt.name);
+			return null;
+		}
+
+		@Override
+		public Void visitBreakStmt(Stmt.Break stmt) {
+			write(19);
+			token(stmt.name);
+			return null;
+		}
+
+		@Override
+		public Void visitPrintStmt(Stmt.Print stmt) {
+			write(20);
+			expr(stmt.expression);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+
+		@Override
+		public Void visitInputStmt(Stmt.Input stmt) {
+			write(21);
+			expr(stmt.expression);
+			span(stmt.start, stmt.end);
+			return null;
+		}
+	}
+
+	private static class Reader {
+		private final ByteBuffer buffer;
+		private final Source source;
+		private String[] strings;
+
+		Reader(ByteBuffer buffer, Source source) {
+			this.buffer = buffer;
+			this.source = source;
+		}
+
+		List<Stmt> read() {
+			strings = new String[buffer.getInt()];
+
+			for(int i = 0; i < strings.length; i++) {
+				strings[i] = string();
+			}
+
+			int count = buffer.getInt();
+			List<Stmt> statements = new ArrayList<>(count);
+
+			for(int i = 0; i < count; i++) {
+				statements.add(stmt());
+			}
+
+			return statements;
+		}
+
+		String string() {
+			return new String(bytes(buffer.getInt()), StandardCharsets.UTF_8);
+		}
+
+		byte[] bytes(int length) {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+
+			return bytes;
+		}
+
+		private int tag() {
+			return buffer.get() & 0xff;
+		}
+
+		private Position position() {
+			int idx = buffer.getInt();
+
+			if(idx < 0) {
+				return null;
+			}
+
+			return new Position(source, idx);
+		}
+
+		private Token token() {
+			if(tag() == 0) {
+				return null;
+			}
+
+			TokenType type = TYPES[tag()];
+			Object literal = value();
+			Position start = position();
+			Position end = position();
+
+			return new Token(type, literal, start, end);
+		}
+
+		private Object value() {
+			switch(tag()) {
+				case 0:
+					return null;
+				case 1:
+					return strings[buffer.getInt()];
+				case 2:
+					return buffer.getLong();
+				case 3:
+					return buffer.getDouble();
+				case 4:
+					return buffer.get() != 0;
+				case 5:
+					return TYPES[tag()];
+				default:
+					throw new IllegalStateException("Unknown value tag");
+			}
+		}
+
+		private List<Token> tokens() {
+			int count = buffer.getInt();
+			List<Token> tokens = new ArrayList<>(count);
+
+			for(int i = 0; i < count; i++) {
+				tokens.add(token());
+			}
+
+			return tokens;
+		}
+
+		private List<TokenType> types() {
+			int count = buffer.getInt();
+			List<TokenType> types = new ArrayList<>(count);
+
+			for(int i = 0; i < count; i++) {
+				types.add(TYPES[tag()]);
+			}
+
+			return types;
+		}
+
+		private List<Stmt> stmts() {
+			int count = buffer.getInt();
+
+			if(count < 0) {
+				return null;
+			}
+
+			List<Stmt> statements = new ArrayList<>(count);
+
+			for(int i = 0; i < count; i++) {
+				statements.add(stmt());
+			}
+
+			return statements;
+		}
+
+		private List<Expr> exprs() {
+			int count = buffer.getInt();
+			List<Expr> expressions = new ArrayList<>(count);
+
+			for(int i = 0; i < count; i++) {
+				expressions.add(expr());
+			}
+
+			return expressions;
+		}
+
+		private Expr expr() {
+			int tag = tag();
+
+			switch(tag) {
+				case 0:
+					return null;
+				case 1:
+					return new Expr.NumberNode(token());
+				case 2:
+					return new Expr.StringNode(token());
+				case 3:
+					return new Expr.LiteralNode(value(), position(), position());
+				case 4:
+					return new Expr.ListNode(exprs(), position(), position());
+				case 5:
+					return new Expr.AssignNode(token(), expr(), tag() == 1);
+				case 6:
+					return new Expr.AccessNode(token());
+				case 7:
+					return new Expr.BinaryOpNode(expr(), token(), expr());
+				case 8:
+					return new Expr.UnaryOpNode(token(), expr());
+				case 9:
+					return new Expr.CallNode(expr(), token(), exprs(), token());
+				case 10:
+					return new Expr.GetNode(expr(), token());
+				case 11:
+					return new Expr.SetNode(expr(), token(), token(), expr(), tag() == 1);
+				case 12:
+					return new Expr.ThisNode(token());
+				case 13:
+					return new Expr.SuperNode(token(), token());
+				default:
+					throw new IllegalStateException("Unknown expression tag " + tag);
+			}
+		}
+
+		private Stmt stmt() {
+			int tag = tag();
+
+			switch(tag) {
+				case 0:
+					return null;
+				case 1:
+					return new Stmt.Block(stmts(), position(), position());
+				case 2:
+					return new Stmt.Expression(expr());
+				case 3:
+					return new Stmt.Var(token(), expr());
+				case 4:
+					return new Stmt.Const(token(), expr());
+				case 5:
+					return new Stmt.String(token(), expr());
+				case 6:
+					return new Stmt.Num(token(), expr());
+				case 7:
+					return new Stmt.Char(token(), expr());
+				case 8:
+					return new Stmt.Boolean(token(), expr());
+				case 9:
+					return new Stmt.If(expr(), stmts(), stmts(), position(), position());
+				case 10:
+					return new Stmt.For(stmt(), expr(), expr(), stmts(), position(), position());
+				case 11:
+					return new Stmt.While(expr(), stmts(), position(), position());
+				case 12:
+					return new Stmt.Do(expr(), stmts(), position(), position());
+				case 13:
+					return new Stmt.Method(token(), tokens(), types(), stmts(), position(), position());
+				case 14:
+					return new Stmt.Init(token(), tokens(), types(), stmts(), position(), position());
+				case 15:
+					Token name = token();
+					List<Expr.AccessNode> supClass = new ArrayList<>();
+
+					for(Expr expression : exprs()) {
+						supClass.add((Expr.AccessNode) expression);
+					}
+
+					Stmt.Init constructor = (Stmt.Init) stmt();
+					List<Stmt.Method> methods = new ArrayList<>();
+
+					for(Stmt method : stmts()) {
+						methods.add((Stmt.Method) method);
+					}
+
+					return new Stmt.Class(name, supClass, constructor, methods, position(), position());
+				case 16:
+					return new Stmt.Enum(token(), tokens(), position(), position());
+				case 17:
+					return new Stmt.Return(token(), exprs());
+				case 18:
+					return new Stmt.Continue(token());
+				case 19:
+					return new Stmt.Break(token());
+				case 20:
+					return new Stmt.Print(expr(), position(), position());
+				case 21:
+					return new Stmt.Input(expr(), position(), position());
+				case 22:
+					Expr value = expr();
+					List<Expr> labels = exprs();
+					int[] entries = new int[labels.size()];
+
+					for(int i = 0; i < entries.length; i++) {
+						entries[i] = buffer.getInt();
+					}
+
+					return new Stmt.Switch(value, labels, entries, buffer.getInt(), stmts(), position(), position());
+				default:
+					throw new IllegalStateException("Unknown statement tag " + tag);
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,78 @@
+package inaf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//the field layout shared by every instance of a class that added the same fields in the same order
+class Shape {
+	//returned by find() for a name the layout does not have
+	static final int ABSENT = Integer.MIN_VALUE;
+
+	final InafClass klass;
+	//the last field added, the root shape of a class has no name
+	final Shape parent;
+	final String name;
+	//an index into the object fields, or ~index into the num fields
+	final int location;
+	final int fields;
+	final int nums;
+	private List<Shape> transitions;
+
+	Shape(InafClass klass) {
+		this(klass, null, null, ABSENT, 0, 0);
+	}
+
+	private Shape(InafClass klass, Shape parent, String name, int location, int fields, int nums) {
+		this.klass = klass;
+		this.parent = parent;
+		this.name = name;
+		this.location = location;
+		this.fields = fields;
+		this.nums = nums;
+	}
+
+	int find(String name) {
+		for(Shape shape = this; shape.name != null; shape = shape.parent) {
+			if(shape.name.equals(name)) {
+				return shape.location;
+			}
+		}
+
+		return ABSENT;
+	}
+
+	Shape add(String name, boolean num) {
+		if(transitions == null) {
+			transitions = new ArrayList<>(1);
+		}
+
+		for(Shape next : transitions) {
+			if(next.name.equals(name) && (next.location < 0) == num) {
+				return next;
+			}
+		}
+
+		Shape next = num ? new Shape(klass, this, name, ~nums, fields, nums + 1) : new Shape(klass, this, name, fields, fields + 1, nums);
+		transitions.add(next);
+
+		return next;
+	}
+
+	//the same fields with one num field moved to the object fields, used once it holds something else
+	Shape generalize(String name) {
+		List<Shape> chain = new ArrayList<>();
+
+		for(Shape shape = this; shape.name != null; shape = shape.parent) {
+			chain.add(shape);
+		}
+
+		Shape shape = klass.shape;
+
+		for(int i = chain.size() - 1; i >= 0; i--) {
+			Shape field = chain.get(i);
+			shape = shape.add(field.name, field.location < 0 && !field.name.equals(name));
+		}
+
+		return shape;
+	}
+}
\ No newline at end of file
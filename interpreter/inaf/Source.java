@@ -0,0 +1,126 @@
+package inaf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+class Source {
+	final String fn;
+	private final ByteBuffer bytes;
+	private int[] lines;
+	private int lineCount;
+
+	private Source(String fn, ByteBuffer bytes) {
+		this.fn = fn;
+		this.bytes = bytes;
+	}
+
+	static Source map(String path) throws IOException {
+		try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			return new Source(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	//a private copy that stays valid when the file is rewritten in place
+	static Source read(String path) throws IOException {
+		return new Source(path, ByteBuffer.wrap(Files.readAllBytes(Paths.get(path))));
+	}
+
+	static Source of(String fn, String ftxt) {
+		return new Source(fn, ByteBuffer.wrap(ftxt.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	int length() {
+		return this.bytes.limit();
+	}
+
+	ByteBuffer buffer() {
+		return this.bytes.asReadOnlyBuffer();
+	}
+
+	int byteAt(int idx) {
+		return this.bytes.get(idx) & 0xff;
+	}
+
+	String text(int start, int end) {
+		byte[] dst = new byte[end - start];
+		this.bytes.get(start, dst);
+
+		return new String(dst, StandardCharsets.UTF_8);
+	}
+
+	int line(int idx) {
+		index();
+
+		int low = 0;
+		int high = lineCount - 1;
+
+		while(low < high) {
+			int mid = (low + high + 1) >>> 1;
+
+			if(lines[mid] <= idx) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		return low;
+	}
+
+	int column(int idx) {
+		int col = 0;
+		idx = Math.min(idx, length());
+
+		for(int i = lineStart(idx); i < idx; i++) {
+			//count only the first byte of each utf-8 sequence
+			if((byteAt(i) & 0xc0) != 0x80) {
+				col++;
+			}
+		}
+
+		return col;
+	}
+
+	int lineStart(int idx) {
+		return lines[line(idx)];
+	}
+
+	int lineEnd(int idx) {
+		int ln = line(idx);
+
+		if(ln + 1 < lineCount) {
+			return lines[ln + 1] - 1;
+		}
+
+		return length();
+	}
+
+	private void index() {
+		if(lines != null) {
+			return;
+		}
+
+		int[] starts = new int[Math.max(16, length() / 32)];
+		int count = 0;
+		starts[count++] = 0;
+
+		for(int i = 0; i < length(); i++) {
+			if(this.bytes.get(i) == '\n') {
+				if(count == starts.length) {
+					starts = Arrays.copyOf(starts, count * 2);
+				}
+
+				starts[count++] = i + 1;
+			}
+		}
+
+		this.lines = starts;
+		this.lineCount = count;
+	}
+}
\ No newline at end of file
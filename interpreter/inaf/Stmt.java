@@ -12,9 +12,11 @@ abstract class Stmt {
 		R visitNumStmt(Num stmt);
 		R visitCharStmt(Char stmt);
 		R visitBooleanStmt(Boolean stmt);
+		R visitIfStmt(If stmt);
 		R visitForStmt(For stmt);
 		R visitWhileStmt(While stmt);
-		R visitWhileStmt(Do stmt);
+		R visitDoStmt(Do stmt);
+		R visitSwitchStmt(Switch stmt);
 		R visitMethodStmt(Method stmt);
 		R visitInitStmt(Init stmt);
 		R visitClassStmt(Class stmt);
@@ -28,23 +30,16 @@ abstract class Stmt {
 	}
 
 	abstract <R> R accept(Visitor<R> visitor);
-	final Position start;
-	final Position end;
+	Position start;
+	Position end;
 
 	static class Block extends Stmt {
 		final List<Stmt> statements;
-		final Position start;
-		final Position end;
 
-		Block(List<Stmt> statements) {
+		Block(List<Stmt> statements, Position start, Position end) {
 			this.statements = statements;
-			this.start = statements.get(0).start;
-
-			if(statements.size() > 0) {
-				this.end = statements.get(statements.size() - 1).end;
-			} else {
-				this.end = statements.get(0).end;
-			}
+			this.start = start;
+			this.end = end;
 		}
 
 		@Override
@@ -55,8 +50,6 @@ abstract class Stmt {
 
 	static class Expression extends Stmt {
 		final Expr expression;
-		final Position start;
-		final Position end;
 
 		Expression(Expr expression) {
 			this.expression = expression;
@@ -73,13 +66,18 @@ abstract class Stmt {
 	static class Var extends Stmt {
 		final Token name;
 		final Expr initializer;
-		final Position start;
-		final Position end;
+		int slot = -1;
+
 		Var(Token name, Expr initializer) {
 			this.name = name;
 			this.initializer = initializer;
 			this.start = name.start;
-			this.end = initializer.end;
+
+			if(initializer != null) {
+				this.end = initializer.end;
+			} else {
+				this.end = name.end;
+			}
 		}
 
 		@Override
@@ -91,8 +89,8 @@ abstract class Stmt {
 	static class Const extends Stmt {
 		final Token name;
 		final Expr initializer;
-		final Position start;
-		final Position end;
+		int slot = -1;
+
 		Const(Token name, Expr initializer) {
 			this.name = name;
 			this.initializer = initializer;
@@ -108,14 +106,19 @@ abstract class Stmt {
 
 	static class String extends Stmt {
 		final Token name;
-		final Expr.StringNode initializer;
-		final Position start;
-		final Position end;
-		String(Token name, Expr.StringNode initializer) {
+		final Expr initializer;
+		int slot = -1;
+
+		String(Token name, Expr initializer) {
 			this.name = name;
 			this.initializer = initializer;
 			this.start = name.start;
-			this.end = initializer.end;
+
+			if(initializer != null) {
+				this.end = initializer.end;
+			} else {
+				this.end = name.end;
+			}
 		}
 
 		@Override
@@ -126,14 +129,19 @@ abstract class Stmt {
 
 	static class Num extends Stmt {
 		final Token name;
-		final Expr.NumberNode initializer;
-		final Position start;
-		final Position end;
-		Num(Token name, Expr.NumberNode initializer) {
+		final Expr initializer;
+		int slot = -1;
+
+		Num(Token name, Expr initializer) {
 			this.name = name;
 			this.initializer = initializer;
 			this.start = name.start;
-			this.end = initializer.end;
+
+			if(initializer != null) {
+				this.end = initializer.end;
+			} else {
+				this.end = name.end;
+			}
 		}
 
 		@Override
@@ -144,14 +152,19 @@ abstract class Stmt {
 
 	static class Char extends Stmt {
 		final Token name;
-		final Expr.StringNode initializer;
-		final Position start;
-		final Position end;
-		Char(Token name, Expr.StringNode initializer) {
+		final Expr initializer;
+		int slot = -1;
+
+		Char(Token name, Expr initializer) {
 			this.name = name;
 			this.initializer = initializer;
 			this.start = name.start;
-			this.end = initializer.end;
+
+			if(initializer != null) {
+				this.end = initializer.end;
+			} else {
+				this.end = name.end;
+			}
 		}
 
 		@Override
@@ -162,14 +175,19 @@ abstract class Stmt {
 
 	static class Boolean extends Stmt {
 		final Token name;
-		final Token initializer;
-		final Position start;
-		final Position end;
-		Boolean(Token name, Token initializer) {
+		final Expr initializer;
+		int slot = -1;
+
+		Boolean(Token name, Expr initializer) {
 			this.name = name;
 			this.initializer = initializer;
 			this.start = name.start;
-			this.end = initializer.end;
+
+			if(initializer != null) {
+				this.end = initializer.end;
+			} else {
+				this.end = name.end;
+			}
 		}
 
 		@Override
@@ -178,23 +196,46 @@ abstract class Stmt {
 		}
 	}
 
-	static class For extends Stmt {
-		final List<Expr> condition;
-		final List<Stmt> body;
-		final Position start;
-		final Position end;
+	static class If extends Stmt {
+		final Expr condition;
+		final List<Stmt> thenBranch;
+		final List<Stmt> elseBranch;
 
-		For(List<Expr> condition, List<Stmt> body) {
+		If(Expr condition, List<Stmt> thenBranch, List<Stmt> elseBranch, Position start, Position end) {
 			this.condition = condition;
-			this.body = body;
+			this.thenBranch = thenBranch;
+			this.elseBranch = elseBranch;
+			this.start = start;
+			this.end = end;
+		}
 
-			if(condition != null) {
-				this.start = condition.get(0).start;
-			} else {
-				this.start = body.get(0).start;
-			}
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitIfStmt(this);
+		}
+	}
 
-			this.end = body.get(body.size() - 1).end;
+	static class For extends Stmt {
+		final Stmt initializer;
+		final Expr condition;
+		final Expr increment;
+		final List<Stmt> body;
+		//set by the Resolver, hoisted expressions are computed once after the initializer
+		List<Expr> invariants;
+		//a counted loop steps the num in slot counter and compares it against the limit kept in slot limit
+		int counter = -1;
+		double step;
+		int limit = -1;
+		//back edge counts and the compiled loop, see Tier
+		final Tier.Counter tier = new Tier.Counter();
+
+		For(Stmt initializer, Expr condition, Expr increment, List<Stmt> body, Position start, Position end) {
+			this.initializer = initializer;
+			this.condition = condition;
+			this.increment = increment;
+			this.body = body;
+			this.start = start;
+			this.end = end;
 		}
 
 		@Override
@@ -206,20 +247,14 @@ abstract class Stmt {
 	static class While extends Stmt {
 		final Expr condition;
 		final List<Stmt> body;
-		final Position start;
-		final Position end;
+		List<Expr> invariants;
+		final Tier.Counter tier = new Tier.Counter();
 
-		While(Expr condition, List<Stmt> body) {
+		While(Expr condition, List<Stmt> body, Position start, Position end) {
 			this.condition = condition;
 			this.body = body;
-
-			if(condition != null) {
-				this.start = condition.start;
-			} else {
-				this.start = body.get(0).start;
-			}
-
-			this.end = body.get(body.size() - 1).end;
+			this.start = start;
+			this.end = end;
 		}
 
 		@Override
@@ -231,232 +266,225 @@ abstract class Stmt {
 	static class Do extends Stmt {
 		final Expr condition;
 		final List<Stmt> body;
-		final Position start;
-		final Position end;
+		List<Expr> invariants;
+		final Tier.Counter tier = new Tier.Counter();
 
-		Do(Expr condition, List<Stmt> body) {
+		Do(Expr condition, List<Stmt> body, Position start, Position end) {
 			this.condition = condition;
 			this.body = body;
+			this.start = start;
+			this.end = end;
+		}
 
-			if(condition != null) {
-				this.start = condition.start;
-			} else {
-				this.start = body.get(0).start;
+		@Override
+		<R> R accept(Visitor<R> visitor) {
+			return visitor.visitDoStmt(this);
+		}
+	}
+
+	static class Switch extends Stmt {
+		final Expr value;
+		final List<Expr> labels;
+		//where the statements of each label start in body, control falls from one case into the next
+		final int[] entries;
+		//where default starts in body, -1 without one
+		final int fallback;
+		final List<Stmt> body;
+		//set by the Resolver once the labels are known
+		Dispatch dispatch;
+
+		Switch(Expr value, List<Expr> labels, int[] entries, int fallback, List<Stmt> body, Position start, Position end) {
+			this.value = value;
+			this.labels = labels;
+			this.entries = entries;
+			this.fallback = fallback;
+			this.body = body;
+			this.start = start;
+			this.end = end;
+		}
+
+		//the first statement to run for what the dispatch returned, body.size() when nothing runs
+		int entry(int label) {
+			if(label < entries.length) {
+				return entries[label];
 			}
 
-			this.end = body.get(body.size() - 1).end;
+			return fallback >= 0 ? fallback : body.size();
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
-			return visitor.visitDoStmt(this);
+			return visitor.visitSwitchStmt(this);
 		}
 	}
 
 	static class Method extends Stmt {
 		final Token name;
 		final List<Token> parametters;
+		final List<TokenType> types;
 		final List<Stmt> body;
-		final Position start;
-		final Position end;
+		int slot = -1;
+		int frameSize;
+		//call counts and compiled code shared by every closure of the declaration, see Tier
+		final Tier.Counter tier = new Tier.Counter();
 
-		Method(Token name, List<Token> parametters, List<Stmt> body) {
+		Method(Token name, List<Token> parametters, List<TokenType> types, List<Stmt> body, Position start, Position end) {
 			this.name = name;
 			this.parametters = parametters;
+			this.types = types;
 			this.body = body;
-
-			if(name != null) {
-				this.start = name.start;
-			} else if(parametters.size() > 0) {
-				this.start = parametters.get(0).start;
-			} else {
-				body.get(0).start;
-			}
-
-			this.end = body.get(body.size() - 1).end;
+			this.start = start;
+			this.end = end;
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
-			visitor.visitMethodStmt(this);
+			return visitor.visitMethodStmt(this);
 		}
 	}
 
 	static class Init extends Stmt {
 		final Token name;
 		final List<Token> parametters;
+		final List<TokenType> types;
 		final List<Stmt> body;
-		final Position start;
-		final Position end;
+		int frameSize;
 
-		Init(Token name, List<Token> parametters, List<Stmt> body) {
+		Init(Token name, List<Token> parametters, List<TokenType> types, List<Stmt> body, Position start, Position end) {
 			this.name = name;
 			this.parametters = parametters;
+			this.types = types;
 			this.body = body;
-
-			if(name != null) {
-				this.start = name.start;
-			} else if(parametters.size() > 0) {
-				this.start = parametters.get(0).start;
-			} else {
-				body.get(0).start;
-			}
-
-			this.end = body.get(body.size() - 1).end;
+			this.start = start;
+			this.end = end;
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
-			visitor.visitInitStmt(this);
+			return visitor.visitInitStmt(this);
 		}
 	}
 
 	static class Class extends Stmt {
 		final Token name;
-		final List<Expr.VariableNode> supClass;
+		final List<Expr.AccessNode> supClass;
 		final Stmt.Init constructor;
 		final List<Stmt.Method> methods;
-		final Position start;
-		final Position end;
+		int slot = -1;
 
-		Class(Token name, List<Expr.VariableNode> supClass, Stmt.Init constructor, List<Stmt.Method> methods) {
+		Class(Token name, List<Expr.AccessNode> supClass, Stmt.Init constructor, List<Stmt.Method> methods, Position start, Position end) {
 			this.name = name;
 			this.supClass = supClass;
 			this.constructor = constructor;
 			this.methods = methods;
-
-			if(name != null) {
-				this.start = name.start;
-			} else if(constructor != null) {
-				this.start = constructor.start;
-			} else {
-				this.start = method.get(0).start;
-			}
-
-			this.end = body.get(body.size() - 1).end;
+			this.start = start;
+			this.end = end;
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
-			visitor.visitClassStmt(this);
+			return visitor.visitClassStmt(this);
 		}
 	}
 
 	static class Enum extends Stmt {
 		final Token name;
-		final List<Expr.LiteralNode> enumValue;
-		final Position start;
-		final Position end;
+		final List<Token> enumValue;
+		//an unnamed enum puts its values in the slots that follow
+		int slot = -1;
 
-		Enum(Token name, List<Expr.LiteralNode> enumValue) {
+		Enum(Token name, List<Token> enumValue, Position start, Position end) {
 			this.name = name;
 			this.enumValue = enumValue;
-
-			if(name != null) {
-				this.start = name.start;
-			} else {
-				this.start = enum.get(0).start;
-			}
-
-			this.end = enum.get(enum.size() - 1).end;
+			this.start = start;
+			this.end = end;
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
-			visitor.visitEnumStmt(this);
+			return visitor.visitEnumStmt(this);
 		}
 	}
 
 	static class Return extends Stmt {
 		final Token name;
 		final List<Expr> value;
-		final Position start;
-		final Position end;
 
 		Return(Token name, List<Expr> value) {
 			this.name = name;
 			this.value = value;
+			this.start = name.start;
 
-			if(name != null) {
-				this.start = name.start;
+			if(value.size() > 0) {
+				this.end = value.get(value.size() - 1).end;
 			} else {
-				this.start = value.get(0).start;
+				this.end = name.end;
 			}
-
-			this.end = value.get(value.size() - 1).end;
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
-			visitor.visitReturnStmt(this);
+			return visitor.visitReturnStmt(this);
 		}
 	}
 
 	static class Continue extends Stmt {
 		final Token name;
-		final Position start;
-		final Position end;
 
 		Continue(Token name) {
 			this.name = name;
-			this.start = name.start
+			this.start = name.start;
 			this.end = name.end;
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
-			visitor.visitContinueStmt(this);
+			return visitor.visitContinueStmt(this);
 		}
 	}
 
 	static class Break extends Stmt {
 		final Token name;
-		final Position start;
-		final Position end;
 
 		Break(Token name) {
 			this.name = name;
-			this.start = name.start
+			this.start = name.start;
 			this.end = name.end;
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
-			visitor.visitBreakStmt(this);
+			return visitor.visitBreakStmt(this);
 		}
 	}
 
 	static class Print extends Stmt {
 		final Expr expression;
-		final Position start;
-		final Position end;
 
-		Print(Expr expression) {
+		Print(Expr expression, Position start, Position end) {
 			this.expression = expression;
-			this.start = expression.start
-			this.end = expression.end;
+			this.start = start;
+			this.end = end;
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
-			visitor.visitPrintStmt(this);
+			return visitor.visitPrintStmt(this);
 		}
 	}
 
 	static class Input extends Stmt {
 		final Expr expression;
-		final Position start;
-		final Position end;
 
-		Input(Expr expression) {
+		Input(Expr expression, Position start, Position end) {
 			this.expression = expression;
-			this.start = expression.start
-			this.end = expression.end;
+			this.start = start;
+			this.end = end;
 		}
 
 		@Override
 		<R> R accept(Visitor<R> visitor) {
-			visitor.visitInputStmt(this);
+			return visitor.visitInputStmt(this);
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package inaf;
+
+//decides when code leaves the interpreter for the Jit, everything starts interpreted so short scripts never compile
+//methods count their calls and loops count their back edges, a loop that gets hot is entered compiled at its next back edge
+final class Tier {
+	//the counts of one method or loop declaration, shared by every closure and by both modes
+	static final class Counter {
+		//-1 once the declaration is known not to compile or deoptimized too often
+		int count;
+		int deopts;
+		Jit.Code code;
+
+		void reset() {
+			count = 0;
+			deopts = 0;
+			code = null;
+		}
+	}
+
+	//a compiled method or loop that keeps deoptimizing goes back to the interpreter for good
+	private static final int DEOPTS = 16;
+
+	static boolean enabled = true;
+	static int calls = 1000;
+	static int backEdges = 10000;
+
+	private Tier() {}
+
+	//null while the method is cold or when it cannot be compiled
+	static Jit.Code method(Stmt.Method method) {
+		Counter counter = method.tier;
+
+		if(counter.code != null) {
+			return counter.code;
+		}
+
+		if(!enabled || counter.count < 0 || ++counter.count < calls) {
+			return null;
+		}
+
+		return promote(counter, Jit.compile(method));
+	}
+
+	//called at every back edge of a For, While or Do running in frame
+	static Jit.Code loop(Stmt loop, Counter counter, Frame frame) {
+		if(counter.code != null) {
+			return counter.code;
+		}
+
+		if(!enabled || counter.count < 0 || ++counter.count < backEdges) {
+			return null;
+		}
+
+		return promote(counter, Jit.compile(loop, frame.nums.length));
+	}
+
+	static void deopt(Counter counter) {
+		if(++counter.deopts >= DEOPTS) {
+			counter.code = null;
+			counter.count = -1;
+		}
+	}
+
+	private static Jit.Code promote(Counter counter, Jit.Code code) {
+		counter.code = code;
+
+		if(code == null) {
+			counter.count = -1;
+		}
+
+		return code;
+	}
+}
\ No newline at end of file
@@ -10,23 +10,13 @@ class Token {
 		this.type = type;
 		this.literal = literal;
 
-		Position tempEnd;
+		this.start = start;
 
-		if(start != null) {
-			this.start = start.copy();
-			tempEnd = start.copy();
-			tempEnd.advanced();
+		if(end == null && start != null) {
+			this.end = new Position(start.source, start.idx + 1);
 		} else {
-			this.start = null;
+			this.end = end;
 		}
-
-		if(end != null) {
-			tempEnd = end.copy();
-		} else {
-			tempEnd = null;
-		}
-
-		this.end = tempEnd;
 	}
 
 	public boolean match(TokenType type, Object literal) {
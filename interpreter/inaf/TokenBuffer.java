@@ -0,0 +1,170 @@
+package inaf;
+
+import static inaf.TokenType.*;
+
+import java.util.Arrays;
+
+class TokenBuffer {
+	private static final TokenType[] TYPES = TokenType.values();
+	private static final int TYPE_MASK = 0xffff;
+	private static final int INTEGER = 1 << 16;
+	//the arrays start small and double in add(), a guess from the source length would reserve several times its size up front
+	private static final int CAPACITY = 64;
+
+	final Source source;
+	private final Lexer lexer;
+	private final Names names;
+	private int[] types;
+	private int[] starts;
+	private int[] lengths;
+	private long[] values;
+	private int size;
+	private boolean complete;
+
+	TokenBuffer(Lexer lexer, Source source, Names names) {
+		this.lexer = lexer;
+		this.source = source;
+		this.names = names;
+		this.types = new int[CAPACITY];
+		this.starts = new int[CAPACITY];
+		this.lengths = new int[CAPACITY];
+		this.values = new long[CAPACITY];
+		this.size = 0;
+		this.complete = false;
+	}
+
+	void add(TokenType type, int start, int end) {
+		add(type, start, end, 0);
+	}
+
+	void addInteger(int start, int end, long value) {
+		add(NUMBER, start, end, value);
+		types[size - 1] |= INTEGER;
+	}
+
+	void addDecimal(int start, int end, double value) {
+		add(NUMBER, start, end, Double.doubleToRawLongBits(value));
+	}
+
+	void add(TokenType type, int start, int end, long value) {
+		if(size == types.length) {
+			int capacity = size * 2;
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		types[size] = type.ordinal();
+		starts[size] = start;
+		lengths[size] = end - start;
+		values[size] = value;
+		size++;
+
+		if(type == EOF) {
+			complete = true;
+		}
+	}
+
+	void fill() {
+		while(!complete) {
+			lexer.nextToken();
+		}
+	}
+
+	private void fill(int idx) {
+		while(size <= idx && !complete) {
+			lexer.nextToken();
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	TokenType type(int idx) {
+		fill(idx);
+
+		if(idx >= size) {
+			return EOF;
+		}
+
+		return TYPES[types[idx] & TYPE_MASK];
+	}
+
+	boolean isInteger(int idx) {
+		fill(idx);
+		return (types[Math.min(idx, size - 1)] & INTEGER) != 0;
+	}
+
+	long longValue(int idx) {
+		fill(idx);
+		idx = Math.min(idx, size - 1);
+
+		if((types[idx] & INTEGER) != 0) {
+			return values[idx];
+		}
+
+		return (long) Double.longBitsToDouble(values[idx]);
+	}
+
+	double doubleValue(int idx) {
+		fill(idx);
+		idx = Math.min(idx, size - 1);
+
+		if((types[idx] & INTEGER) != 0) {
+			return values[idx];
+		}
+
+		return Double.longBitsToDouble(values[idx]);
+	}
+
+	int start(int idx) {
+		fill(idx);
+		return starts[Math.min(idx, size - 1)];
+	}
+
+	int end(int idx) {
+		fill(idx);
+		idx = Math.min(idx, size - 1);
+
+		return starts[idx] + lengths[idx];
+	}
+
+	Object literal(int idx) {
+		TokenType type = type(idx);
+		int start = start(idx);
+		int end = end(idx);
+
+		switch(type) {
+			case STRINGL:
+				return source.text(start + 1, end - 1);
+			case NUMBER:
+				if(isInteger(idx)) {
+					return longValue(idx);
+				}
+
+				return doubleValue(idx);
+			case IDENTIFIER:
+				return names.name((int) values[Math.min(idx, size - 1)]);
+			case EOF:
+				return "";
+			default:
+				if(type.compareTo(PACKAGE) >= 0) {
+					return source.text(start, end);
+				}
+
+				return null;
+		}
+	}
+
+	Token token(int idx) {
+		fill(idx);
+		idx = Math.min(idx, size - 1);
+
+		Position start = new Position(source, starts[idx]);
+		Position end = new Position(source, starts[idx] + lengths[idx]);
+
+		return new Token(TYPES[types[idx] & TYPE_MASK], literal(idx), start, end);
+	}
+}
\ No newline at end of file
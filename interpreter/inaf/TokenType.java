@@ -13,8 +13,8 @@ enum TokenType {
 	LESS, LTE, // <, <=
 	AMPERSAND, AND, // &, &&
 	EOR, OR, // |, ||
-	PLUS, PLUSEQUAL, // +, +=
-	MINUS, MINUSEQUAL, LAMBDA, // -, -=, ->
+	PLUS, PLUSEQUAL, INCREMENT, // +, +=, ++
+	MINUS, MINUSEQUAL, DECREMENT, LAMBDA, // -, -=, --, ->
 	MUL, MULEQUAL,// *, *=
 	DIV, DIVEQUAL, // /, /=
 	MOD, MODEQUAL, // %, %=
@@ -30,7 +30,7 @@ enum TokenType {
 	PACKAGE, IMPORT, CLASS, METHOD, INIT,
 	VAR, CONST, STRING, NUM, CHAR, BOOLEAN,
 	TRUE, FALSE,
-	IF, ELIF, ELSE, FOR, WHILE, DO, SWITCH, CASE,
+	IF, ELIF, ELSE, FOR, WHILE, DO, SWITCH, CASE, DEFAULT,
 	RETURN, CONTINUE, BREAK,
 	SUPER, THIS,
 	PRINT, INPUT, TYPE,
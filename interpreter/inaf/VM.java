@@ -0,0 +1,842 @@
+package inaf;
+
+import static inaf.OpCode.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class VM {
+	//a method activation, locals live in the heap frame so nested methods can capture them
+	private static class CallFrame {
+		Chunk chunk;
+		Frame frame;
+		int ip;
+	}
+
+	final Map<String, Object> globals = new HashMap<>();
+	private final BufferedReader input;
+	private Object[] stack = new Object[256];
+	//the operand stack pairs like a Frame does, a num result is Frame.NUM in stack with its value at the same index here
+	private double[] nums = new double[256];
+	private int sp;
+	private CallFrame[] calls = new CallFrame[64];
+	private int callCount;
+	//frames live on the heap, this only stops runaway recursion before it exhausts memory
+	private static final int MAX_CALLS = 1 << 22;
+
+	VM(BufferedReader input) {
+		this.input = input;
+	}
+
+	void interpret(Chunk script) {
+		sp = 0;
+		callCount = 0;
+
+		try {
+			push(new Frame(null, script.frameSize, null, null), script);
+			run();
+		} catch(RTError error) {
+			System.out.println("Runtime Error: " + error.getMessage() + " at file " + error.token.start.fn + " line " + (error.token.start.ln() + 1));
+		}
+	}
+
+	private void push(Frame frame, Chunk chunk) {
+		if(callCount == calls.length) {
+			calls = Arrays.copyOf(calls, callCount * 2);
+		}
+
+		CallFrame call = calls[callCount];
+
+		if(call == null) {
+			call = new CallFrame();
+			calls[callCount] = call;
+		}
+
+		call.chunk = chunk;
+		call.frame = frame;
+		call.ip = 0;
+		callCount++;
+	}
+
+	private void ensure(int extra) {
+		if(sp + extra >= stack.length) {
+			stack = Arrays.copyOf(stack, Math.max(stack.length * 2, sp + extra + 1));
+			nums = Arrays.copyOf(nums, stack.length);
+		}
+	}
+
+	private void run() {
+		CallFrame call = calls[callCount - 1];
+		Chunk chunk = call.chunk;
+		int[] code = chunk.code;
+		Object[] constants = chunk.constants;
+		Frame frame = call.frame;
+		int ip = 0;
+		int pc = 0;
+
+		Object[] stack = this.stack;
+		double[] nums = this.nums;
+		int sp = this.sp;
+
+		try {
+			for(;;) {
+				pc = ip;
+
+				switch(code[ip++]) {
+					case CONSTANT:
+						stack[sp++] = constants[code[ip++]];
+						break;
+					case NIL:
+						stack[sp++] = null;
+						break;
+					case TRUE:
+						stack[sp++] = Boolean.TRUE;
+						break;
+					case FALSE:
+						stack[sp++] = Boolean.FALSE;
+						break;
+					case POP:
+						stack[--sp] = null;
+						break;
+					case DUP:
+						stack[sp] = stack[sp - 1];
+						nums[sp] = nums[sp - 1];
+						sp++;
+						break;
+					case DUP_UNDER:
+						stack[sp] = stack[sp - 1];
+						nums[sp] = nums[sp - 1];
+						stack[sp - 1] = stack[sp - 2];
+						nums[sp - 1] = nums[sp - 2];
+						stack[sp - 2] = stack[sp];
+						nums[sp - 2] = nums[sp];
+						sp++;
+						break;
+					case LOAD: {
+						int slot = code[ip++];
+						stack[sp] = frame.slots[slot];
+						nums[sp++] = frame.nums[slot];
+						break;
+					}
+					case LOAD_NUM:
+						stack[sp] = Frame.NUM;
+						nums[sp++] = frame.nums[code[ip++]];
+						break;
+					case LOAD_OUTER: {
+						Frame target = outer(frame, code[ip++]);
+						int slot = code[ip++];
+						stack[sp] = target.slots[slot];
+						nums[sp++] = target.nums[slot];
+						break;
+					}
+					case LOAD_OUTER_NUM: {
+						Frame target = outer(frame, code[ip++]);
+						stack[sp] = Frame.NUM;
+						nums[sp++] = target.nums[code[ip++]];
+						break;
+					}
+					case LOAD_GLOBAL: {
+						String name = (String) constants[code[ip++]];
+						Object value = globals.get(name);
+
+						if(value == null && !globals.containsKey(name)) {
+							throw error(chunk, pc, "Undefined variable '" + name + "'");
+						}
+
+						stack[sp++] = value;
+						break;
+					}
+					case STORE: {
+						int slot = code[ip++];
+						frame.slots[slot] = stack[sp - 1];
+						frame.nums[slot] = nums[sp - 1];
+						break;
+					}
+					case STORE_NUM:
+						frame.nums[code[ip++]] = number(stack[sp - 1], nums[sp - 1], chunk, pc);
+						break;
+					case STORE_OUTER: {
+						Frame target = outer(frame, code[ip++]);
+						int slot = code[ip++];
+						target.slots[slot] = stack[sp - 1];
+						target.nums[slot] = nums[sp - 1];
+						break;
+					}
+					case STORE_OUTER_NUM: {
+						Frame target = outer(frame, code[ip++]);
+						target.nums[code[ip++]] = number(stack[sp - 1], nums[sp - 1], chunk, pc);
+						break;
+					}
+					case STORE_GLOBAL:
+						globals.put((String) constants[code[ip++]], value(stack, nums, sp - 1));
+						break;
+					case CHECK: {
+						TokenType type = TYPES[code[ip++]];
+
+						if(!Interpreter.matches(type, value(stack, nums, sp - 1))) {
+							throw error(chunk, pc, "Expected " + Interpreter.expected(type));
+						}
+
+						break;
+					}
+					case ADD: {
+						Object right = stack[--sp];
+						Object left = stack[sp - 1];
+
+						if(left == Frame.NUM && right == Frame.NUM) {
+							nums[sp - 1] += nums[sp];
+						} else if(num(left) && num(right)) {
+							nums[sp - 1] = number(left, nums[sp - 1], chunk, pc) + number(right, nums[sp], chunk, pc);
+							stack[sp - 1] = Frame.NUM;
+						} else if(left instanceof CharSequence || right instanceof CharSequence) {
+							stack[sp - 1] = Interpreter.concat(value(stack, nums, sp - 1), value(stack, nums, sp));
+						} else if(left instanceof InafList && right instanceof InafList) {
+							stack[sp - 1] = ((InafList) left).concat((InafList) right);
+						} else {
+							throw error(chunk, pc, "Operands of '+' must be nums, strings or lists");
+						}
+
+						break;
+					}
+					case SUBTRACT: {
+						sp--;
+						double right = number(stack[sp], nums[sp], chunk, pc);
+						nums[sp - 1] = number(stack[sp - 1], nums[sp - 1], chunk, pc) - right;
+						stack[sp - 1] = Frame.NUM;
+						break;
+					}
+					case MULTIPLY: {
+						sp--;
+						double right = number(stack[sp], nums[sp], chunk, pc);
+						nums[sp - 1] = number(stack[sp - 1], nums[sp - 1], chunk, pc) * right;
+						stack[sp - 1] = Frame.NUM;
+						break;
+					}
+					case DIVIDE: {
+						sp--;
+						double right = number(stack[sp], nums[sp], chunk, pc);
+
+						if(right == 0) {
+							throw error(chunk, pc, "Division by zero");
+						}
+
+						nums[sp - 1] = number(stack[sp - 1], nums[sp - 1], chunk, pc) / right;
+						stack[sp - 1] = Frame.NUM;
+						break;
+					}
+					case MODULO: {
+						sp--;
+						double right = number(stack[sp], nums[sp], chunk, pc);
+
+						if(right == 0) {
+							throw error(chunk, pc, "Division by zero");
+						}
+
+						nums[sp - 1] = Interpreter.modulo(number(stack[sp - 1], nums[sp - 1], chunk, pc), right, null);
+						stack[sp - 1] = Frame.NUM;
+						break;
+					}
+					case NEGATE:
+						nums[sp - 1] = -number(stack[sp - 1], nums[sp - 1], chunk, pc);
+						stack[sp - 1] = Frame.NUM;
+						break;
+					case NOT:
+						stack[sp - 1] = !truthy(stack, nums, sp - 1);
+						break;
+					case EQUAL:
+						sp--;
+						stack[sp - 1] = equal(stack, nums, sp - 1, sp);
+						break;
+					case NOT_EQUAL:
+						sp--;
+						stack[sp - 1] = !equal(stack, nums, sp - 1, sp);
+						break;
+					case LESS:
+						sp--;
+						stack[sp - 1] = compare(TokenType.LESS, stack, nums, sp - 1, sp, chunk, pc);
+						break;
+					case LESS_EQUAL:
+						sp--;
+						stack[sp - 1] = compare(TokenType.LTE, stack, nums, sp - 1, sp, chunk, pc);
+						break;
+					case GREATER:
+						sp--;
+						stack[sp - 1] = compare(TokenType.GREATER, stack, nums, sp - 1, sp, chunk, pc);
+						break;
+					case GREATER_EQUAL:
+						sp--;
+						stack[sp - 1] = compare(TokenType.GTE, stack, nums, sp - 1, sp, chunk, pc);
+						break;
+					case AMPERSAND: {
+						Object right = stack[--sp];
+						Object left = stack[sp - 1];
+
+						if(left instanceof Boolean && right instanceof Boolean) {
+							stack[sp - 1] = (Boolean) left & (Boolean) right;
+						} else {
+							nums[sp - 1] = (double) ((long) number(left, nums[sp - 1], chunk, pc) & (long) number(right, nums[sp], chunk, pc));
+							stack[sp - 1] = Frame.NUM;
+						}
+
+						break;
+					}
+					case EOR: {
+						Object right = stack[--sp];
+						Object left = stack[sp - 1];
+
+						if(left instanceof Boolean && right instanceof Boolean) {
+							stack[sp - 1] = (Boolean) left | (Boolean) right;
+						} else {
+							nums[sp - 1] = (double) ((long) number(left, nums[sp - 1], chunk, pc) | (long) number(right, nums[sp], chunk, pc));
+							stack[sp - 1] = Frame.NUM;
+						}
+
+						break;
+					}
+					case TYPE: {
+						Object right = stack[--sp];
+						Boolean result = Interpreter.type(stack[sp - 1], right);
+
+						if(result == null) {
+							throw error(chunk, pc, "Right operand of 'type' must be a type");
+						}
+
+						stack[sp - 1] = result;
+						break;
+					}
+					case JUMP:
+						ip = code[ip];
+						break;
+					case JUMP_FALSE: {
+						boolean holds = truthy(stack, nums, --sp);
+						stack[sp] = null;
+
+						if(!holds) {
+							ip = code[ip];
+						} else {
+							ip++;
+						}
+
+						break;
+					}
+					case CALL:
+					case SUPER_CALL:
+					case INVOKE: {
+						Object callee = null;
+						InafMethod method = null;
+						InafInstance self = null;
+						int count;
+						int base;
+
+						if(code[pc] == INVOKE) {
+							String name = (String) constants[code[ip++]];
+							count = code[ip++];
+							InlineCache cache = chunk.caches[code[ip++]];
+							base = sp - count;
+							Object object = stack[base - 1];
+
+							//the receiver sits in the callee slot, a method found through the cache is called on it directly
+							if(object instanceof InafInstance) {
+								InafInstance instance = (InafInstance) object;
+								callee = cache.field(instance, name);
+
+								if(callee == InafInstance.MISSING) {
+									method = cache.method(instance, name);
+									self = instance;
+
+									if(method == null) {
+										throw error(chunk, pc, "Undefined property '" + name + "'");
+									}
+								}
+							} else if(object instanceof InafEnum) {
+								callee = ((InafEnum) object).get(name(chunk, pc, name));
+							} else {
+								throw error(chunk, pc, "Only instances have properties");
+							}
+						} else if(code[pc] == SUPER_CALL) {
+							count = code[ip++];
+							base = sp - count;
+							Frame holder = methodFrame(frame);
+
+							if(holder == null || holder.holder == null || holder.holder.supers.isEmpty()) {
+								throw error(chunk, pc, "Cannot use 'super' outside of a subclass");
+							}
+
+							method = holder.holder.supers.get(0).findInit();
+							self = holder.self;
+
+							if(method == null) {
+								Arrays.fill(stack, base, sp, null);
+								sp = base;
+								stack[sp++] = null;
+								break;
+							}
+
+							//make room for the callee slot below the arguments
+							System.arraycopy(stack, base, stack, base + 1, count);
+							System.arraycopy(nums, base, nums, base + 1, count);
+							base++;
+							sp++;
+						} else {
+							count = code[ip++];
+							base = sp - count;
+							callee = stack[base - 1];
+						}
+
+						if(method == null) {
+							if(callee instanceof InafMethod) {
+								method = (InafMethod) callee;
+								self = method.self;
+							} else if(callee instanceof InafClass) {
+								InafClass klass = (InafClass) callee;
+								InafInstance instance = new InafInstance(klass);
+								method = klass.findInit();
+
+								if(method == null) {
+									if(count != 0) {
+										throw error(chunk, pc, "Expected 0 arguments but got " + count);
+									}
+
+									sp = base;
+									stack[sp - 1] = instance;
+									break;
+								}
+
+								self = instance;
+							} else {
+								throw error(chunk, pc, "Can only call methods and classes");
+							}
+						}
+
+						if(method.chunk == null) {
+							throw error(chunk, pc, "Method was not compiled for the vm");
+						}
+
+						if(method.arity() != count) {
+							throw error(chunk, pc, "Expected " + method.arity() + " arguments but got " + count);
+						}
+
+						Frame callFrame = method.frame(self);
+
+						for(int i = 0; i < count; i++) {
+							Object argument = stack[base + i];
+							stack[base + i] = null;
+							TokenType type = method.types.get(i);
+
+							//Frame.NUM matches exactly the types a num does
+							if(type == TokenType.NUM) {
+								callFrame.nums[i] = number(argument, nums[base + i], chunk, pc);
+							} else if(Interpreter.matches(type, argument)) {
+								callFrame.slots[i] = argument;
+								callFrame.nums[i] = nums[base + i];
+							} else {
+								throw error(chunk, pc, "Expected " + Interpreter.expected(type) + " for '" + method.parametters.get(i).literal + "'");
+							}
+						}
+
+						//a hot method compiled by the Jit returns its num directly, a deopt falls back to running the same frame here
+						//compiled self calls recurse on the jvm stack, running out of it is a stack overflow like running out of call frames
+						if(method.declaration != null) {
+							Jit.Code compiled = Tier.method(method.declaration);
+
+							if(compiled != null) {
+								try {
+									double result = compiled.run(callFrame);
+
+									sp = base;
+									stack[sp - 1] = Frame.NUM;
+									nums[sp - 1] = result;
+									break;
+								} catch(Jit.Deopt deopt) {
+									Tier.deopt(method.declaration.tier);
+								} catch(StackOverflowError overflow) {
+									throw error(chunk, pc, "Stack overflow");
+								}
+							}
+						}
+
+						//a call whose result is returned right away reuses the running activation, so tail recursion never grows the call stack
+						if(code[ip] == RETURN && !chunk.init && !method.init && callCount > 1) {
+							stack[base - 1] = null;
+							sp = base - 1;
+							call.chunk = method.chunk;
+							call.frame = callFrame;
+						} else {
+							//the callee slot receives the result when the method returns
+							sp = base;
+							stack[sp - 1] = method.init ? self : null;
+
+							if(callCount == MAX_CALLS) {
+								throw error(chunk, pc, "Stack overflow");
+							}
+
+							call.ip = ip;
+							this.sp = sp;
+							push(callFrame, method.chunk);
+							call = calls[callCount - 1];
+						}
+
+						chunk = call.chunk;
+						code = chunk.code;
+						constants = chunk.constants;
+						frame = callFrame;
+						ip = 0;
+						break;
+					}
+					case LOOP_TEST: {
+						int compare = code[ip++];
+						double counter = frame.nums[code[ip++]];
+						double limit = frame.nums[code[ip++]];
+						int exit = code[ip++];
+						boolean holds;
+
+						switch(compare) {
+							case LESS:
+								holds = counter < limit;
+								break;
+							case LESS_EQUAL:
+								holds = counter <= limit;
+								break;
+							case GREATER:
+								holds = counter > limit;
+								break;
+							default:
+								holds = counter >= limit;
+								break;
+						}
+
+						if(!holds) {
+							ip = exit;
+						}
+
+						break;
+					}
+					case LOOP_STEP: {
+						int slot = code[ip++];
+						frame.nums[slot] += (Double) constants[code[ip++]];
+						break;
+					}
+					case BACK_EDGE: {
+						Stmt loop = (Stmt) constants[code[ip++]];
+						Tier.Counter counter = (Tier.Counter) constants[code[ip++]];
+						int exit = code[ip++];
+						Jit.Code compiled = Tier.loop(loop, counter, frame);
+
+						//locals live in the frame and the stack is empty between statements, so the compiled loop takes over as is
+						if(compiled != null) {
+							try {
+								compiled.run(frame);
+								ip = exit;
+							} catch(Jit.Deopt deopt) {
+								Tier.deopt(counter);
+							}
+						}
+
+						break;
+					}
+					case SWITCH: {
+						Dispatch dispatch = (Dispatch) constants[code[ip++]];
+						int label = stack[--sp] == Frame.NUM ? dispatch.target(nums[sp]) : dispatch.target(stack[sp]);
+						stack[sp] = null;
+						ip = code[ip + label];
+						break;
+					}
+					case RETURN: {
+						Object result = stack[--sp];
+						double num = nums[sp];
+						stack[sp] = null;
+						boolean init = chunk.init;
+						callCount--;
+
+						if(callCount == 0) {
+							this.sp = sp;
+							return;
+						}
+
+						call = calls[callCount - 1];
+						chunk = call.chunk;
+						code = chunk.code;
+						constants = chunk.constants;
+						frame = call.frame;
+						ip = call.ip;
+
+						if(!init) {
+							stack[sp - 1] = result;
+							nums[sp - 1] = num;
+						}
+
+						break;
+					}
+					case LIST: {
+						int count = code[ip++];
+						InafList.Builder list = new InafList.Builder(count);
+
+						for(int i = sp - count; i < sp; i++) {
+							if(stack[i] == Frame.NUM) {
+								list.add(nums[i]);
+							} else {
+								list.add(stack[i]);
+							}
+
+							stack[i] = null;
+						}
+
+						sp -= count;
+						stack[sp++] = list.build();
+						break;
+					}
+					case GET: {
+						Object object = stack[sp - 1];
+						String name = (String) constants[code[ip++]];
+						InlineCache cache = chunk.caches[code[ip++]];
+
+						if(object instanceof InafInstance) {
+							InafInstance instance = (InafInstance) object;
+							Object value = cache.field(instance, name);
+
+							if(value == InafInstance.MISSING) {
+								InafMethod method = cache.method(instance, name);
+
+								if(method == null) {
+									throw error(chunk, pc, "Undefined property '" + name + "'");
+								}
+
+								value = method.bind(instance);
+							}
+
+							stack[sp - 1] = value;
+						} else if(object instanceof InafEnum) {
+							stack[sp - 1] = ((InafEnum) object).get(name(chunk, pc, name));
+						} else {
+							throw error(chunk, pc, "Only instances have properties");
+						}
+
+						break;
+					}
+					case SET: {
+						Object value = value(stack, nums, --sp);
+						Object object = stack[sp - 1];
+
+						if(!(object instanceof InafInstance)) {
+							throw error(chunk, pc, "Only instances have fields");
+						}
+
+						String name = (String) constants[code[ip++]];
+						chunk.caches[code[ip++]].set((InafInstance) object, name, value);
+						stack[sp - 1] = value;
+						break;
+					}
+					case THIS: {
+						Frame method = methodFrame(frame);
+
+						if(method == null) {
+							throw error(chunk, pc, "Cannot use 'this' outside of a class");
+						}
+
+						stack[sp++] = method.self;
+						break;
+					}
+					case SUPER: {
+						Frame method = methodFrame(frame);
+						String name = (String) constants[code[ip++]];
+
+						if(method == null || method.holder == null) {
+							throw error(chunk, pc, "Cannot use 'super' outside of a class");
+						}
+
+						InafMethod found = method.holder.findSuper(name);
+
+						if(found == null) {
+							throw error(chunk, pc, "Undefined super method '" + name + "'");
+						}
+
+						stack[sp++] = found.bind(method.self);
+						break;
+					}
+					case METHOD:
+						stack[sp++] = new InafMethod((Chunk) constants[code[ip++]], frame, null);
+						break;
+					case CLASS: {
+						Chunk.ClassInfo info = (Chunk.ClassInfo) constants[code[ip++]];
+						List<InafClass> supers = new ArrayList<>(info.supers);
+
+						for(int i = sp - info.supers; i < sp; i++) {
+							if(!(stack[i] instanceof InafClass)) {
+								throw error(chunk, pc, "Super class must be a class");
+							}
+
+							supers.add((InafClass) stack[i]);
+							stack[i] = null;
+						}
+
+						sp -= info.supers;
+
+						InafClass klass = new InafClass(info.name, supers);
+
+						if(klass.order == null) {
+							throw error(chunk, pc, "Cannot order the super classes of '" + info.name + "' consistently");
+						}
+
+						if(info.init != null) {
+							klass.init = new InafMethod(info.init, frame, klass);
+						}
+
+						for(Chunk method : info.methods) {
+							klass.define((String) method.name.literal, new InafMethod(method, frame, klass));
+						}
+
+						stack[sp++] = klass;
+						break;
+					}
+					case ENUM: {
+						Stmt.Enum stmt = (Stmt.Enum) constants[code[ip++]];
+						InafEnum enumType = new InafEnum(stmt);
+
+						for(int i = 0; i < stmt.enumValue.size(); i++) {
+							InafEnum.Value value = enumType.add((String) stmt.enumValue.get(i).literal);
+
+							if(stmt.name == null && stmt.slot >= 0) {
+								frame.slots[stmt.slot + i] = value;
+							}
+						}
+
+						if(stmt.name != null && stmt.slot >= 0) {
+							frame.slots[stmt.slot] = enumType;
+						}
+
+						break;
+					}
+					case PRINT:
+						System.out.println(stringify(stack, nums, --sp));
+						stack[sp] = null;
+						break;
+					case INPUT:
+						if(code[ip++] == 1) {
+							System.out.print(stringify(stack, nums, --sp));
+							stack[sp] = null;
+						}
+
+						try {
+							input.readLine();
+						} catch(IOException exception) {
+							throw error(chunk, pc, "Cannot read input");
+						}
+
+						break;
+					default:
+						throw error(chunk, pc, "Unknown instruction " + code[pc]);
+				}
+
+				//operands never outgrow the stack between two instructions by more than one call's arguments
+				if(sp + 16 >= stack.length) {
+					this.sp = sp;
+					ensure(16);
+					stack = this.stack;
+					nums = this.nums;
+				}
+			}
+		} finally {
+			this.sp = sp;
+		}
+	}
+
+	private static final TokenType[] TYPES = TokenType.values();
+
+	private static Frame outer(Frame frame, int depth) {
+		for(int i = 0; i < depth; i++) {
+			frame = frame.enclosing;
+		}
+
+		return frame;
+	}
+
+	private static Frame methodFrame(Frame frame) {
+		while(frame != null && frame.self == null) {
+			frame = frame.enclosing;
+		}
+
+		return frame;
+	}
+
+	//a num on the operand stack is Frame.NUM with its value in nums, or a Double loaded from a constant, a var or a field
+	private static boolean num(Object value) {
+		return value == Frame.NUM || value instanceof Double;
+	}
+
+	private static double number(Object value, double num, Chunk chunk, int pc) {
+		if(value == Frame.NUM) {
+			return num;
+		}
+
+		if(value instanceof Double) {
+			return (Double) value;
+		}
+
+		throw error(chunk, pc, "Expected a num but got " + Interpreter.stringify(value));
+	}
+
+	//boxes only where a value leaves the stack for something that holds plain objects
+	private static Object value(Object[] stack, double[] nums, int index) {
+		Object value = stack[index];
+
+		return value == Frame.NUM ? (Object) nums[index] : value;
+	}
+
+	private static boolean truthy(Object[] stack, double[] nums, int index) {
+		if(stack[index] == Frame.NUM) {
+			return nums[index] != 0;
+		}
+
+		return Interpreter.truthy(stack[index]);
+	}
+
+	//two nums are compared with ==, like the evaluator does, without boxing either
+	private static boolean equal(Object[] stack, double[] nums, int left, int right) {
+		if(num(stack[left]) && num(stack[right])) {
+			return number(stack[left], nums[left], null, 0) == number(stack[right], nums[right], null, 0);
+		}
+
+		return Interpreter.equal(value(stack, nums, left), value(stack, nums, right));
+	}
+
+	private static boolean compare(TokenType operator, Object[] stack, double[] nums, int left, int right, Chunk chunk, int pc) {
+		if(num(stack[left]) && num(stack[right])) {
+			return Interpreter.compare(operator, number(stack[left], nums[left], chunk, pc), number(stack[right], nums[right], chunk, pc));
+		}
+
+		if(stack[left] instanceof CharSequence && stack[right] instanceof CharSequence) {
+			return Interpreter.compare(operator, stack[left].toString().compareTo(stack[right].toString()), 0);
+		}
+
+		throw error(chunk, pc, "Operands must be two nums or two strings");
+	}
+
+	private static String stringify(Object[] stack, double[] nums, int index) {
+		if(stack[index] == Frame.NUM) {
+			return Interpreter.stringify(nums[index]);
+		}
+
+		return Interpreter.stringify(stack[index]);
+	}
+
+	private static Token name(Chunk chunk, int pc, Object name) {
+		Position position = chunk.positions[pc];
+
+		return new Token(TokenType.IDENTIFIER, name, position, position);
+	}
+
+	private static Token token(Chunk chunk, int pc) {
+		Position position = chunk.positions[pc];
+
+		return new Token(TokenType.IDENTIFIER, null, position, position);
+	}
+
+	private static RTError error(Chunk chunk, int pc, String message) {
+		return new RTError(token(chunk, pc), message);
+	}
+}
\ No newline at end of file